@@ -19,8 +19,8 @@
  */
 package org.xwiki.contrib.githubstats;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import java.util.Objects;
+
 import org.xwiki.stability.Unstable;
 import org.xwiki.text.XWikiToStringBuilder;
 
@@ -59,28 +59,20 @@ public class Author
     @Override
     public int hashCode()
     {
-        return new HashCodeBuilder(11, 11)
-            .append(getId())
-            .append(getEmail())
-            .toHashCode();
+        // Computed without allocating since authors are used as keys of large maps when scanning repositories
+        return 31 * Objects.hashCode(getId()) + Objects.hashCode(getEmail());
     }
 
     @Override
     public boolean equals(Object object)
     {
-        if (object == null) {
-            return false;
-        }
         if (object == this) {
             return true;
         }
-        if (object.getClass() != getClass()) {
+        if (object == null || object.getClass() != getClass()) {
             return false;
         }
         Author rhs = (Author) object;
-        return new EqualsBuilder()
-            .append(getId(), rhs.getId())
-            .append(getEmail(), rhs.getEmail())
-            .isEquals();
+        return Objects.equals(getId(), rhs.getId()) && Objects.equals(getEmail(), rhs.getEmail());
     }
 }
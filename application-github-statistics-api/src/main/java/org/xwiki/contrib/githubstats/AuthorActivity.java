@@ -0,0 +1,151 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.xwiki.stability.Unstable;
+import org.xwiki.text.XWikiToStringBuilder;
+
+/**
+ * Summary of the commits of an author: number of commits, dates of the earliest and latest ones and the repositories
+ * they were made in.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Unstable
+public class AuthorActivity
+{
+    private final Author author;
+
+    private int count;
+
+    private long earliest = Long.MAX_VALUE;
+
+    private long latest = Long.MIN_VALUE;
+
+    private final Set<GitHubRepository> repositories = new HashSet<>();
+
+    /**
+     * @param author the author of the commits
+     */
+    public AuthorActivity(Author author)
+    {
+        this.author = author;
+    }
+
+    /**
+     * @return the author of the commits
+     */
+    public Author getAuthor()
+    {
+        return this.author;
+    }
+
+    /**
+     * @return the name of the author of the commits
+     */
+    public String getName()
+    {
+        return this.author.getId();
+    }
+
+    /**
+     * @return the email of the author of the commits
+     */
+    public String getEmail()
+    {
+        return this.author.getEmail();
+    }
+
+    /**
+     * @return the number of commits
+     */
+    public int getCount()
+    {
+        return this.count;
+    }
+
+    /**
+     * @return the date of the earliest commit or {@code null} if there's no commit
+     */
+    public Date getEarliest()
+    {
+        return this.count > 0 ? new Date(this.earliest) : null;
+    }
+
+    /**
+     * @return the date of the latest commit or {@code null} if there's no commit
+     */
+    public Date getLatest()
+    {
+        return this.count > 0 ? new Date(this.latest) : null;
+    }
+
+    /**
+     * @return the repositories in which the commits were made
+     */
+    public Set<GitHubRepository> getRepositories()
+    {
+        return this.repositories;
+    }
+
+    /**
+     * Count some new commits.
+     *
+     * @param commitCount the number of commits
+     * @param earliestTime the time of the earliest commit, in milliseconds
+     * @param latestTime the time of the latest commit, in milliseconds
+     */
+    public void addCommits(int commitCount, long earliestTime, long latestTime)
+    {
+        this.count += commitCount;
+        this.earliest = Math.min(this.earliest, earliestTime);
+        this.latest = Math.max(this.latest, latestTime);
+    }
+
+    /**
+     * Add the commits of another activity of the same person to this one.
+     *
+     * @param activity the activity to add
+     */
+    public void merge(AuthorActivity activity)
+    {
+        if (activity.getCount() > 0) {
+            addCommits(activity.count, activity.earliest, activity.latest);
+        }
+        this.repositories.addAll(activity.getRepositories());
+    }
+
+    @Override
+    public String toString()
+    {
+        return new XWikiToStringBuilder(this)
+            .append("author", getAuthor())
+            .append("count", getCount())
+            .append("earliest", getEarliest())
+            .append("latest", getLatest())
+            .append("repositories", getRepositories())
+            .toString();
+    }
+}
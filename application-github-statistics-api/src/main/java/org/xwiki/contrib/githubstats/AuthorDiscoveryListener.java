@@ -0,0 +1,46 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats;
+
+import java.util.Collection;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Receives the authors found in the Git repositories, one repository at a time, as soon as each repository has been
+ * scanned.
+ *
+ * @version $Id$
+ * @since 2.3
+ * @see GitHubStatsManager#findAllAuthors(AuthorDiscoveryListener)
+ */
+@Unstable
+@FunctionalInterface
+public interface AuthorDiscoveryListener
+{
+    /**
+     * Called from the thread that started the discovery, once per scanned repository.
+     *
+     * @param repository the repository that has been scanned
+     * @param authors the authors who have contributed to that repository
+     * @throws GitHubStatsException if the authors couldn't be processed, which stops the discovery
+     */
+    void onAuthorsDiscovered(GitHubRepository repository, Collection<Author> authors) throws GitHubStatsException;
+}
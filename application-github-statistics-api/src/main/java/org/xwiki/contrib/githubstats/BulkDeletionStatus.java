@@ -0,0 +1,171 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats;
+
+import java.util.Date;
+
+import org.xwiki.stability.Unstable;
+import org.xwiki.text.XWikiToStringBuilder;
+
+/**
+ * Progress of the deletion of all the author or repository pages of a wiki, performed in the background.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Unstable
+public class BulkDeletionStatus
+{
+    private final String wiki;
+
+    private final String type;
+
+    private final boolean skipRecycleBin;
+
+    private final int total;
+
+    private final int deleted;
+
+    private final int failed;
+
+    private final long startTime;
+
+    private final long endTime;
+
+    private final String message;
+
+    /**
+     * @param wiki the wiki in which the pages are deleted
+     * @param type the type of pages being deleted ({@code authors} or {@code repositories})
+     * @param skipRecycleBin whether the pages are deleted without being sent to the recycle bin
+     * @param total the number of pages to delete
+     * @param deleted the number of pages deleted so far
+     * @param failed the number of pages that couldn't be deleted so far
+     * @param startTime the time at which the deletion started, in milliseconds
+     * @param endTime the time at which the deletion ended, in milliseconds, {@code 0} if it's still running
+     * @param message the reason why the deletion stopped before the end, {@code null} if it didn't
+     */
+    public BulkDeletionStatus(String wiki, String type, boolean skipRecycleBin, int total, int deleted, int failed,
+        long startTime, long endTime, String message)
+    {
+        this.wiki = wiki;
+        this.type = type;
+        this.skipRecycleBin = skipRecycleBin;
+        this.total = total;
+        this.deleted = deleted;
+        this.failed = failed;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.message = message;
+    }
+
+    /**
+     * @return the wiki in which the pages are deleted
+     */
+    public String getWiki()
+    {
+        return this.wiki;
+    }
+
+    /**
+     * @return the type of pages being deleted ({@code authors} or {@code repositories})
+     */
+    public String getType()
+    {
+        return this.type;
+    }
+
+    /**
+     * @return {@code true} if the pages are deleted without being sent to the recycle bin
+     */
+    public boolean isSkipRecycleBin()
+    {
+        return this.skipRecycleBin;
+    }
+
+    /**
+     * @return the number of pages to delete
+     */
+    public int getTotal()
+    {
+        return this.total;
+    }
+
+    /**
+     * @return the number of pages deleted so far
+     */
+    public int getDeleted()
+    {
+        return this.deleted;
+    }
+
+    /**
+     * @return the number of pages that couldn't be deleted so far
+     */
+    public int getFailed()
+    {
+        return this.failed;
+    }
+
+    /**
+     * @return the date at which the deletion started
+     */
+    public Date getStartDate()
+    {
+        return new Date(this.startTime);
+    }
+
+    /**
+     * @return the date at which the deletion ended, {@code null} if it's still running
+     */
+    public Date getEndDate()
+    {
+        return this.endTime > 0 ? new Date(this.endTime) : null;
+    }
+
+    /**
+     * @return {@code true} if the deletion has ended
+     */
+    public boolean isFinished()
+    {
+        return this.endTime > 0;
+    }
+
+    /**
+     * @return the reason why the deletion stopped before the end, {@code null} if it didn't
+     */
+    public String getMessage()
+    {
+        return this.message;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new XWikiToStringBuilder(this)
+            .append("wiki", getWiki())
+            .append("type", getType())
+            .append("total", getTotal())
+            .append("deleted", getDeleted())
+            .append("failed", getFailed())
+            .append("finished", isFinished())
+            .toString();
+    }
+}
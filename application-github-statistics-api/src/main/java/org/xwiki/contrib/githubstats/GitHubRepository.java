@@ -19,8 +19,8 @@
  */
 package org.xwiki.contrib.githubstats;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
+import java.util.Objects;
+
 import org.xwiki.stability.Unstable;
 import org.xwiki.text.XWikiToStringBuilder;
 
@@ -58,28 +58,20 @@ public class GitHubRepository
     @Override
     public int hashCode()
     {
-        return new HashCodeBuilder(9, 3)
-            .append(getOrganizationId())
-            .append(getRepositoryId())
-            .toHashCode();
+        return 31 * Objects.hashCode(getOrganizationId()) + Objects.hashCode(getRepositoryId());
     }
 
     @Override
     public boolean equals(Object object)
     {
-        if (object == null) {
-            return false;
-        }
         if (object == this) {
             return true;
         }
-        if (object.getClass() != getClass()) {
+        if (object == null || object.getClass() != getClass()) {
             return false;
         }
         GitHubRepository rhs = (GitHubRepository) object;
-        return new EqualsBuilder()
-            .append(getOrganizationId(), rhs.getOrganizationId())
-            .append(getRepositoryId(), rhs.getRepositoryId())
-            .isEquals();
+        return Objects.equals(getOrganizationId(), rhs.getOrganizationId())
+            && Objects.equals(getRepositoryId(), rhs.getRepositoryId());
     }
 }
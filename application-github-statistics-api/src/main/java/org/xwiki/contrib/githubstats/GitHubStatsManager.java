@@ -44,6 +44,16 @@ public interface GitHubStatsManager
      */
     Map<Author, Set<GitHubRepository>> findAllAuthors() throws GitHubStatsException;
 
+    /**
+     * Find all authors from all defined organizations and repositories, handing them over as each repository is
+     * scanned rather than collecting all of them first.
+     *
+     * @param listener receives the authors of each repository
+     * @since 2.3
+     */
+    @Unstable
+    void findAllAuthors(AuthorDiscoveryListener listener) throws GitHubStatsException;
+
     List<String> importAuthor(String authorId, String authorEmail, Collection<GitHubRepository> repositories,
         boolean overwrite) throws GitHubStatsException;
 
@@ -69,11 +79,13 @@ public interface GitHubStatsManager
         throws GitHubStatsException;
 
     /**
-     * The format of the repositories is: {@code (organization name)/(repository name)} where {@code organization name}
-     * can be {@code *} to signify all repositories for this organization. For example:
+     * The format of the repositories is: {@code (organization name)/(repository name)} where {@code repository name}
+     * can be {@code *} to signify all repositories for this organization. Both names can also contain {@code *}
+     * wildcards. For example:
      * <ul>
      *   <li>xwiki/*</li>
      *   <li>xwiki-contrib/application-github-statistics</li>
+     *   <li>xwiki-contrib/application-*</li>
      * </ul>
      */
     Map<GitHubRepository, String> getRepositoryURLs(String... repositoryAsStrings) throws GitHubStatsException;
@@ -82,6 +94,70 @@ public interface GitHubStatsManager
 
     List<Repository> getRepositories(Map<GitHubRepository, String> repositories);
 
+    /**
+     * Summarize the commits of each author for the passed repositories. The result is computed from a persistent
+     * index of the commit dates of each author, which only walks the commits added since the last call.
+     *
+     * @param since the number of days in the past from which to count commits, {@code 0} to count all commits
+     * @param repositories the repositories to look into, with their Git URIs
+     * @return the activity of each author, the most active authors first
+     * @since 2.3
+     */
+    List<AuthorActivity> getAuthorActivities(int since, Map<GitHubRepository, String> repositories)
+        throws GitHubStatsException;
+
     Map<String, Map<String, Object>> aggregateCommitsPerAuthor(UserCommitActivity[] userCommitActivity, Map<Author,
         Map<String, Object>> authors);
+
+    /**
+     * Same as {@link #aggregateCommitsPerAuthor(UserCommitActivity[], Map)} but for the commit activities computed by
+     * {@link #getAuthorActivities(int, Map)}.
+     *
+     * @since 2.3
+     */
+    Map<String, Map<String, Object>> aggregateCommitsPerAuthor(Collection<AuthorActivity> authorActivities,
+        Map<Author, Map<String, Object>> authors);
+
+    /**
+     * @return the repositories that recently failed to be cloned/updated or scanned, and until when they're skipped
+     * @since 2.3
+     */
+    @Unstable
+    Collection<RepositoryFailure> getRepositoryFailures();
+
+    /**
+     * Forget the recent repository failures so that the failed repositories are retried right away.
+     *
+     * @since 2.3
+     */
+    @Unstable
+    void clearRepositoryFailures();
+
+    /**
+     * Start deleting all the author pages of the current wiki in the background. Importing authors in the wiki fails
+     * until the deletion is finished.
+     *
+     * @param skipRecycleBin {@code true} to delete the pages without sending them to the recycle bin
+     * @return the status of the started deletion
+     * @since 2.3
+     */
+    @Unstable
+    BulkDeletionStatus deleteAuthorsInBackground(boolean skipRecycleBin) throws GitHubStatsException;
+
+    /**
+     * Start deleting all the repository pages of the current wiki in the background.
+     *
+     * @param skipRecycleBin {@code true} to delete the pages without sending them to the recycle bin
+     * @return the status of the started deletion
+     * @since 2.3
+     */
+    @Unstable
+    BulkDeletionStatus deleteRepositoriesInBackground(boolean skipRecycleBin) throws GitHubStatsException;
+
+    /**
+     * @return the progress of the last background deletion started in the current wiki, {@code null} if there's none
+     * @since 2.3
+     */
+    @Unstable
+    BulkDeletionStatus getDeletionStatus();
 }
@@ -0,0 +1,121 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats;
+
+import java.util.Date;
+
+import org.xwiki.stability.Unstable;
+import org.xwiki.text.XWikiToStringBuilder;
+
+/**
+ * Consecutive failures to clone/update or scan a repository. The repository is skipped until the retry date.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Unstable
+public class RepositoryFailure
+{
+    private final GitHubRepository repository;
+
+    private final int count;
+
+    private final long lastFailure;
+
+    private final long retryTime;
+
+    private final String message;
+
+    /**
+     * @param repository the repository that failed
+     * @param count the number of consecutive failures
+     * @param lastFailure the time of the last failure, in milliseconds
+     * @param retryTime the time after which the repository can be processed again, in milliseconds
+     * @param message the reason of the last failure
+     */
+    public RepositoryFailure(GitHubRepository repository, int count, long lastFailure, long retryTime, String message)
+    {
+        this.repository = repository;
+        this.count = count;
+        this.lastFailure = lastFailure;
+        this.retryTime = retryTime;
+        this.message = message;
+    }
+
+    /**
+     * @return the repository that failed
+     */
+    public GitHubRepository getRepository()
+    {
+        return this.repository;
+    }
+
+    /**
+     * @return the number of consecutive failures
+     */
+    public int getCount()
+    {
+        return this.count;
+    }
+
+    /**
+     * @return the date of the last failure
+     */
+    public Date getLastFailure()
+    {
+        return new Date(this.lastFailure);
+    }
+
+    /**
+     * @return the date after which the repository can be processed again
+     */
+    public Date getRetryDate()
+    {
+        return new Date(this.retryTime);
+    }
+
+    /**
+     * @param time a time, in milliseconds
+     * @return {@code true} if the repository should still be skipped at the passed time
+     */
+    public boolean isBackingOff(long time)
+    {
+        return time < this.retryTime;
+    }
+
+    /**
+     * @return the reason of the last failure
+     */
+    public String getMessage()
+    {
+        return this.message;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new XWikiToStringBuilder(this)
+            .append("repository", getRepository())
+            .append("count", getCount())
+            .append("retryDate", getRetryDate())
+            .append("message", getMessage())
+            .toString();
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.model.reference.DocumentReference;
+
+/**
+ * Finds the author pages representing the same person and computes the data to copy between them, in memory.
+ * <p>
+ * Two authors are considered the same person when they have the same id, the same full name, the same email, or when
+ * the id of one is the full name of the other. The authors linked this way form groups (computed with a union-find).
+ * For each group containing at least one author with an avatar (i.e. imported from GitHub), the empty avatar, name,
+ * profile URL and company fields of each author are filled from the other authors of the group, preferring the
+ * authors having an avatar, and the committer flag of a repository is set on all the authors of the group as soon as
+ * one of them is a committer of that repository. Since the avatar is filled on every author of the group, each of them
+ * ends up as a source for the others, which is what linking the authors one by one until nothing changes leads to.
+ * Since filling the name of an author can link it to other authors, groups are computed again until they don't
+ * change.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class AuthorIdentityResolver
+{
+    /**
+     * The changes to make to an author page to link it with the other pages of the same person.
+     */
+    public static class AuthorLink
+    {
+        private final DocumentReference documentReference;
+
+        private final String linkedAuthorId;
+
+        private final Map<String, String> fields;
+
+        private final Set<GitHubRepository> committerRepositories;
+
+        AuthorLink(DocumentReference documentReference, String linkedAuthorId, Map<String, String> fields,
+            Set<GitHubRepository> committerRepositories)
+        {
+            this.documentReference = documentReference;
+            this.linkedAuthorId = linkedAuthorId;
+            this.fields = fields;
+            this.committerRepositories = committerRepositories;
+        }
+
+        /**
+         * @return the reference of the author page to modify
+         */
+        public DocumentReference getDocumentReference()
+        {
+            return this.documentReference;
+        }
+
+        /**
+         * @return the id of the author (with an avatar) the page is linked with
+         */
+        public String getLinkedAuthorId()
+        {
+            return this.linkedAuthorId;
+        }
+
+        /**
+         * @return the AuthorClass fields to set, which are empty on the page
+         */
+        public Map<String, String> getFields()
+        {
+            return this.fields;
+        }
+
+        /**
+         * @return the repositories for which the committer flag must be set on the page
+         */
+        public Set<GitHubRepository> getCommitterRepositories()
+        {
+            return this.committerRepositories;
+        }
+    }
+
+    private static final String AVATAR = "avatar";
+
+    private static final String NAME = "name";
+
+    private static final String PROFILE_URL = "profileurl";
+
+    private static final String COMPANY = "company";
+
+    private static final List<String> FIELDS = Arrays.asList(AVATAR, NAME, PROFILE_URL, COMPANY);
+
+    private final List<AuthorRecord> authors;
+
+    /**
+     * The current name of each author, which is updated when names are filled.
+     */
+    private final String[] names;
+
+    private final int[] parents;
+
+    /**
+     * @param authors all the authors of the wiki
+     */
+    public AuthorIdentityResolver(List<AuthorRecord> authors)
+    {
+        this.authors = authors;
+        this.names = new String[authors.size()];
+        for (int i = 0; i < this.names.length; i++) {
+            this.names[i] = authors.get(i).getName();
+        }
+        this.parents = new int[authors.size()];
+    }
+
+    /**
+     * @return the changes to make to the author pages, only for the pages that need to be modified
+     */
+    public List<AuthorLink> resolve()
+    {
+        Map<Integer, List<Integer>> groups;
+        boolean namesFilled;
+        do {
+            groups = computeGroups();
+            namesFilled = false;
+            for (List<Integer> group : groups.values()) {
+                if (group.size() > 1 && hasAvatar(group)) {
+                    String name = getMergedValue(group, NAME);
+                    for (int author : group) {
+                        if (StringUtils.isEmpty(this.names[author]) && !StringUtils.isEmpty(name)) {
+                            this.names[author] = name;
+                            namesFilled = true;
+                        }
+                    }
+                }
+            }
+        } while (namesFilled);
+
+        List<AuthorLink> links = new ArrayList<>();
+        for (List<Integer> group : groups.values()) {
+            if (group.size() > 1 && hasAvatar(group)) {
+                addLinks(group, links);
+            }
+        }
+        return links;
+    }
+
+    private Map<Integer, List<Integer>> computeGroups()
+    {
+        for (int i = 0; i < this.parents.length; i++) {
+            this.parents[i] = i;
+        }
+        // Ids and names share the same map since the id of an author can match the name of another
+        Map<String, Integer> idsAndNames = new HashMap<>();
+        Map<String, Integer> emails = new HashMap<>();
+        for (int i = 0; i < this.parents.length; i++) {
+            AuthorRecord author = this.authors.get(i);
+            union(idsAndNames, author.getId(), i);
+            union(idsAndNames, this.names[i], i);
+            union(emails, author.getEmail(), i);
+        }
+
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < this.parents.length; i++) {
+            groups.computeIfAbsent(find(i), key -> new ArrayList<>()).add(i);
+        }
+        return groups;
+    }
+
+    private void union(Map<String, Integer> values, String value, int author)
+    {
+        if (!StringUtils.isEmpty(value)) {
+            Integer other = values.putIfAbsent(value, author);
+            if (other != null) {
+                int root = find(author);
+                int otherRoot = find(other);
+                if (root != otherRoot) {
+                    // Keep the smallest index as root so that groups are ordered like the authors
+                    this.parents[Math.max(root, otherRoot)] = Math.min(root, otherRoot);
+                }
+            }
+        }
+    }
+
+    private int find(int author)
+    {
+        int root = author;
+        while (this.parents[root] != root) {
+            root = this.parents[root];
+        }
+        // Path compression
+        int current = author;
+        while (this.parents[current] != root) {
+            int next = this.parents[current];
+            this.parents[current] = root;
+            current = next;
+        }
+        return root;
+    }
+
+    private boolean hasAvatar(List<Integer> group)
+    {
+        for (int author : group) {
+            if (!StringUtils.isEmpty(this.authors.get(author).getAvatar())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the value of the field of the first author with an avatar having one, or else of the first author having
+     *         one
+     */
+    private String getMergedValue(List<Integer> group, String field)
+    {
+        String fallback = null;
+        for (int author : group) {
+            String authorValue = getValue(author, field);
+            if (!StringUtils.isEmpty(authorValue)) {
+                if (!StringUtils.isEmpty(this.authors.get(author).getAvatar())) {
+                    return authorValue;
+                } else if (fallback == null) {
+                    fallback = authorValue;
+                }
+            }
+        }
+        return fallback;
+    }
+
+    private void addLinks(List<Integer> group, List<AuthorLink> links)
+    {
+        Map<String, String> mergedFields = new HashMap<>();
+        for (String field : FIELDS) {
+            String value = getMergedValue(group, field);
+            if (value != null) {
+                mergedFields.put(field, value);
+            }
+        }
+        Set<GitHubRepository> committerRepositories = new HashSet<>();
+        String linkedAuthorId = null;
+        for (int author : group) {
+            AuthorRecord record = this.authors.get(author);
+            for (Map.Entry<GitHubRepository, Boolean> entry : record.getRepositories().entrySet()) {
+                if (entry.getValue()) {
+                    committerRepositories.add(entry.getKey());
+                }
+            }
+            if (linkedAuthorId == null && !StringUtils.isEmpty(record.getAvatar())) {
+                linkedAuthorId = record.getId();
+            }
+        }
+
+        for (int author : group) {
+            AuthorRecord record = this.authors.get(author);
+            Map<String, String> fields = new LinkedHashMap<>();
+            for (String field : FIELDS) {
+                // Compare with the stored value, the names filled while grouping haven't been saved yet
+                if (StringUtils.isEmpty(getStoredValue(record, field)) && mergedFields.containsKey(field)) {
+                    fields.put(field, mergedFields.get(field));
+                }
+            }
+            Set<GitHubRepository> repositories = new HashSet<>();
+            for (Map.Entry<GitHubRepository, Boolean> entry : record.getRepositories().entrySet()) {
+                if (!entry.getValue() && committerRepositories.contains(entry.getKey())) {
+                    repositories.add(entry.getKey());
+                }
+            }
+            if (!fields.isEmpty() || !repositories.isEmpty()) {
+                links.add(new AuthorLink(record.getDocumentReference(), linkedAuthorId, fields, repositories));
+            }
+        }
+    }
+
+    private String getValue(int author, String field)
+    {
+        return NAME.equals(field) ? this.names[author] : getStoredValue(this.authors.get(author), field);
+    }
+
+    private String getStoredValue(AuthorRecord author, String field)
+    {
+        switch (field) {
+            case AVATAR:
+                return author.getAvatar();
+            case NAME:
+                return author.getName();
+            case PROFILE_URL:
+                return author.getProfileURL();
+            default:
+                return author.getCompany();
+        }
+    }
+}
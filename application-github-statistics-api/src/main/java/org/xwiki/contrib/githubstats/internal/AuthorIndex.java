@@ -0,0 +1,445 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * In-memory index of the author pages of each wiki, by id, email, name, repository and organization. The index of a
+ * wiki is built the first time it's used, from two queries, and is then kept up to date by {@link AuthorIndexListener}
+ * when author pages are created, updated or deleted.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = AuthorIndex.class)
+@Singleton
+public class AuthorIndex
+{
+    private static final EntityReference AUTHOR_CLASS = new EntityReference("AuthorClass", EntityType.DOCUMENT,
+        new EntityReference("GitHubStats", EntityType.SPACE));
+
+    private static final EntityReference AUTHOR_REPOSITORY_CLASS = new EntityReference("AuthorRepositoryClass",
+        EntityType.DOCUMENT, new EntityReference("GitHubStats", EntityType.SPACE));
+
+    private static final String ORGANIZATION_ID = "organizationId";
+
+    private static final String REPOSITORY_ID = "repositoryId";
+
+    private static final String COMMITTER = "committer";
+
+    private static class WikiIndex
+    {
+        private final Map<DocumentReference, AuthorRecord> authors = new HashMap<>();
+
+        private final Map<String, Set<DocumentReference>> byId = new HashMap<>();
+
+        private final Map<String, Set<DocumentReference>> byEmail = new HashMap<>();
+
+        private final Map<String, Set<DocumentReference>> byName = new HashMap<>();
+
+        /**
+         * The authors of each repository, with their committer flag.
+         */
+        private final Map<GitHubRepository, Map<DocumentReference, Boolean>> byRepository = new HashMap<>();
+
+        /**
+         * The authors of each organization (i.e. of at least one of its repositories), with their committer flag (i.e.
+         * committer of at least one of its repositories).
+         */
+        private final Map<String, Map<DocumentReference, Boolean>> byOrganization = new HashMap<>();
+
+        /**
+         * The repositories of each organization having at least one author.
+         */
+        private final Map<String, Set<GitHubRepository>> repositoriesByOrganization = new HashMap<>();
+
+        void add(AuthorRecord author)
+        {
+            remove(author.getDocumentReference());
+            DocumentReference reference = author.getDocumentReference();
+            this.authors.put(reference, author);
+            addEntry(this.byId, author.getId(), reference);
+            addEntry(this.byEmail, author.getEmail(), reference);
+            addEntry(this.byName, author.getName(), reference);
+            for (Map.Entry<GitHubRepository, Boolean> entry : author.getRepositories().entrySet()) {
+                GitHubRepository repository = entry.getKey();
+                String organization = repository.getOrganizationId();
+                this.byRepository.computeIfAbsent(repository, key -> new LinkedHashMap<>())
+                    .put(reference, entry.getValue());
+                this.byOrganization.computeIfAbsent(organization, key -> new LinkedHashMap<>())
+                    .merge(reference, entry.getValue(), Boolean::logicalOr);
+                this.repositoriesByOrganization.computeIfAbsent(organization, key -> new HashSet<>())
+                    .add(repository);
+            }
+        }
+
+        void remove(DocumentReference reference)
+        {
+            AuthorRecord author = this.authors.remove(reference);
+            if (author != null) {
+                removeEntry(this.byId, author.getId(), reference);
+                removeEntry(this.byEmail, author.getEmail(), reference);
+                removeEntry(this.byName, author.getName(), reference);
+                for (GitHubRepository repository : author.getRepositories().keySet()) {
+                    String organization = repository.getOrganizationId();
+                    if (removeMember(this.byRepository, repository, reference)) {
+                        removeEntry(this.repositoriesByOrganization, organization, repository);
+                    }
+                    removeMember(this.byOrganization, organization, reference);
+                }
+            }
+        }
+
+        List<AuthorRecord> get(Collection<DocumentReference> references)
+        {
+            List<AuthorRecord> result = new ArrayList<>(references.size());
+            for (DocumentReference reference : references) {
+                result.add(this.authors.get(reference));
+            }
+            return result;
+        }
+
+        Map<DocumentReference, Boolean> getMembers(Collection<GitHubRepository> repositories)
+        {
+            Map<String, Set<GitHubRepository>> requestedByOrganization = new HashMap<>();
+            for (GitHubRepository repository : repositories) {
+                requestedByOrganization.computeIfAbsent(repository.getOrganizationId(), key -> new HashSet<>())
+                    .add(repository);
+            }
+
+            Map<DocumentReference, Boolean> members = new LinkedHashMap<>();
+            for (Map.Entry<String, Set<GitHubRepository>> entry : requestedByOrganization.entrySet()) {
+                Set<GitHubRepository> organizationRepositories =
+                    this.repositoriesByOrganization.getOrDefault(entry.getKey(), Collections.emptySet());
+                if (entry.getValue().containsAll(organizationRepositories)) {
+                    // All the repositories of the organization are requested (e.g. "org/*"), use its members directly
+                    mergeMembers(members, this.byOrganization.get(entry.getKey()));
+                } else {
+                    for (GitHubRepository repository : entry.getValue()) {
+                        mergeMembers(members, this.byRepository.get(repository));
+                    }
+                }
+            }
+            return members;
+        }
+
+        private void mergeMembers(Map<DocumentReference, Boolean> members, Map<DocumentReference, Boolean> added)
+        {
+            if (added != null) {
+                for (Map.Entry<DocumentReference, Boolean> entry : added.entrySet()) {
+                    members.merge(entry.getKey(), entry.getValue(), Boolean::logicalOr);
+                }
+            }
+        }
+
+        private <K> void addEntry(Map<K, Set<DocumentReference>> map, K key, DocumentReference reference)
+        {
+            // Empty values aren't indexed
+            if (key != null && !"".equals(key)) {
+                map.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(reference);
+            }
+        }
+
+        private <K, V> void removeEntry(Map<K, Set<V>> map, K key, V value)
+        {
+            Set<V> values = map.get(key);
+            if (values != null) {
+                values.remove(value);
+                if (values.isEmpty()) {
+                    map.remove(key);
+                }
+            }
+        }
+
+        /**
+         * @return {@code true} if there's no member left for the passed key
+         */
+        private <K> boolean removeMember(Map<K, Map<DocumentReference, Boolean>> map, K key,
+            DocumentReference reference)
+        {
+            Map<DocumentReference, Boolean> members = map.get(key);
+            if (members != null) {
+                members.remove(reference);
+                if (members.isEmpty()) {
+                    map.remove(key);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Inject
+    private GitHubStatsQueries queries;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> currentResolver;
+
+    private final Map<String, WikiIndex> wikis = new HashMap<>();
+
+    /**
+     * @param wiki the wiki
+     * @return all the authors of the wiki
+     * @throws QueryException if the index of the wiki cannot be built
+     */
+    public synchronized List<AuthorRecord> getAuthors(String wiki) throws QueryException
+    {
+        return new ArrayList<>(getWikiIndex(wiki).authors.values());
+    }
+
+    /**
+     * @param wiki the wiki
+     * @param id an author id
+     * @return the authors having the passed id
+     * @throws QueryException if the index of the wiki cannot be built
+     */
+    public synchronized List<AuthorRecord> getAuthorsById(String wiki, String id) throws QueryException
+    {
+        WikiIndex index = getWikiIndex(wiki);
+        return index.get(index.byId.getOrDefault(id, Collections.emptySet()));
+    }
+
+    /**
+     * @param wiki the wiki
+     * @param email an author email
+     * @return the authors having the passed email
+     * @throws QueryException if the index of the wiki cannot be built
+     */
+    public synchronized List<AuthorRecord> getAuthorsByEmail(String wiki, String email) throws QueryException
+    {
+        WikiIndex index = getWikiIndex(wiki);
+        return index.get(index.byEmail.getOrDefault(email, Collections.emptySet()));
+    }
+
+    /**
+     * @param wiki the wiki
+     * @param name an author full name
+     * @return the authors having the passed full name
+     * @throws QueryException if the index of the wiki cannot be built
+     */
+    public synchronized List<AuthorRecord> getAuthorsByName(String wiki, String name) throws QueryException
+    {
+        WikiIndex index = getWikiIndex(wiki);
+        return index.get(index.byName.getOrDefault(name, Collections.emptySet()));
+    }
+
+    /**
+     * @param wiki the wiki
+     * @param repositories some repositories
+     * @return the authors who have contributed to at least one of the passed repositories, with {@code true} for the
+     *         authors who are committers of at least one of them
+     * @throws QueryException if the index of the wiki cannot be built
+     */
+    public synchronized Map<AuthorRecord, Boolean> getAuthorsByRepositories(String wiki,
+        Collection<GitHubRepository> repositories) throws QueryException
+    {
+        WikiIndex index = getWikiIndex(wiki);
+        Map<AuthorRecord, Boolean> authors = new LinkedHashMap<>();
+        for (Map.Entry<DocumentReference, Boolean> entry : index.getMembers(repositories).entrySet()) {
+            authors.put(index.authors.get(entry.getKey()), entry.getValue());
+        }
+        return authors;
+    }
+
+    /**
+     * Update the index after the passed document has been created or updated. Nothing is done if the index of the
+     * document wiki hasn't been built yet.
+     *
+     * @param document the new version of the document
+     */
+    public synchronized void update(XWikiDocument document)
+    {
+        WikiIndex index = this.wikis.get(document.getDocumentReference().getWikiReference().getName());
+        if (index != null) {
+            AuthorRecord author = getAuthor(document);
+            if (author != null) {
+                index.add(author);
+            } else {
+                // The page isn't an author page (anymore)
+                index.remove(document.getDocumentReference());
+            }
+        }
+    }
+
+    /**
+     * Update the index after the passed document has been deleted.
+     *
+     * @param reference the reference of the deleted document
+     */
+    public synchronized void remove(DocumentReference reference)
+    {
+        WikiIndex index = this.wikis.get(reference.getWikiReference().getName());
+        if (index != null) {
+            index.remove(reference);
+        }
+    }
+
+    /**
+     * Drop the index of the passed wiki, which is built again the next time it's used. Called when changes that have
+     * already been applied to the index are rolled back.
+     *
+     * @param wiki the wiki
+     */
+    public synchronized void invalidate(String wiki)
+    {
+        this.wikis.remove(wiki);
+    }
+
+    private WikiIndex getWikiIndex(String wiki) throws QueryException
+    {
+        WikiIndex index = this.wikis.get(wiki);
+        if (index == null) {
+            index = buildWikiIndex(wiki);
+            this.wikis.put(wiki, index);
+        }
+        return index;
+    }
+
+    private WikiIndex buildWikiIndex(String wiki) throws QueryException
+    {
+        WikiReference wikiReference = new WikiReference(wiki);
+
+        Query query = this.queries.createQuery(GitHubStatsQueries.AUTHOR_REPOSITORIES);
+        query.setWiki(wiki);
+        Map<String, Map<GitHubRepository, Boolean>> repositories = new HashMap<>();
+        for (Object[] repositoryData : query.<Object[]>execute()) {
+            GitHubRepository repository = new GitHubRepository((String) repositoryData[1], (String) repositoryData[2]);
+            repositories.computeIfAbsent((String) repositoryData[0], key -> new HashMap<>())
+                .merge(repository, isTrue(repositoryData[3]), Boolean::logicalOr);
+        }
+
+        query = this.queries.createQuery(GitHubStatsQueries.AUTHORS);
+        query.setWiki(wiki);
+        query.bindValue("className", this.queries.getClassName(AUTHOR_CLASS));
+        // The properties of the first AuthorClass xobject of each page, which is the only one used
+        Map<String, Map<String, String>> authorProperties = new LinkedHashMap<>();
+        Map<String, Integer> authorObjectNumbers = new HashMap<>();
+        for (Object[] propertyData : query.<Object[]>execute()) {
+            String fullName = (String) propertyData[0];
+            Integer number = ((Number) propertyData[1]).intValue();
+            // The rows are ordered by xobject number
+            if (authorObjectNumbers.putIfAbsent(fullName, number) == null) {
+                authorProperties.put(fullName, new HashMap<>());
+            }
+            if (number.equals(authorObjectNumbers.get(fullName))) {
+                authorProperties.get(fullName).put((String) propertyData[2], (String) propertyData[3]);
+            }
+        }
+
+        WikiIndex index = new WikiIndex();
+        for (Map.Entry<String, Map<String, String>> entry : authorProperties.entrySet()) {
+            String fullName = entry.getKey();
+            Map<String, String> properties = entry.getValue();
+            index.add(new AuthorRecord(this.currentResolver.resolve(fullName, wikiReference),
+                StringUtils.defaultString(properties.get("id")), StringUtils.defaultString(properties.get("email")),
+                StringUtils.defaultString(properties.get("name")), StringUtils.defaultString(properties.get("avatar")),
+                StringUtils.defaultString(properties.get("company")),
+                StringUtils.defaultString(properties.get("profileurl")),
+                repositories.getOrDefault(fullName, Collections.emptyMap())));
+        }
+        return index;
+    }
+
+    private AuthorRecord getAuthor(XWikiDocument document)
+    {
+        BaseObject authorObject = getFirstObject(document.getXObjects(AUTHOR_CLASS));
+        if (authorObject == null) {
+            return null;
+        }
+
+        Map<GitHubRepository, Boolean> repositories;
+        if (authorObject.get(AuthorRepositorySummary.REPOSITORIES) != null) {
+            // Read the summary updated on save instead of going through the repository xobjects
+            repositories = AuthorRepositorySummary.parse(
+                authorObject.getLargeStringValue(AuthorRepositorySummary.REPOSITORIES),
+                authorObject.getLargeStringValue(AuthorRepositorySummary.COMMITTER_REPOSITORIES));
+        } else {
+            repositories = getRepositories(document);
+        }
+
+        return new AuthorRecord(document.getDocumentReference(), authorObject.getStringValue("id"),
+            authorObject.getStringValue("email"), authorObject.getStringValue("name"),
+            authorObject.getStringValue("avatar"), authorObject.getStringValue("company"),
+            authorObject.getStringValue("profileurl"), repositories);
+    }
+
+    private Map<GitHubRepository, Boolean> getRepositories(XWikiDocument document)
+    {
+        Map<GitHubRepository, Boolean> repositories = new HashMap<>();
+        List<BaseObject> repositoryObjects = document.getXObjects(AUTHOR_REPOSITORY_CLASS);
+        if (repositoryObjects != null) {
+            for (BaseObject repositoryObject : repositoryObjects) {
+                // XObjects can be null since there can be holes, just ignore
+                if (repositoryObject != null) {
+                    repositories.merge(new GitHubRepository(repositoryObject.getStringValue(ORGANIZATION_ID),
+                        repositoryObject.getStringValue(REPOSITORY_ID)),
+                        repositoryObject.getIntValue(COMMITTER) == 1, Boolean::logicalOr);
+                }
+            }
+        }
+        return repositories;
+    }
+
+    private BaseObject getFirstObject(List<BaseObject> objects)
+    {
+        if (objects != null) {
+            for (BaseObject object : objects) {
+                if (object != null) {
+                    return object;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isTrue(Object value)
+    {
+        return value instanceof Number && ((Number) value).intValue() == 1;
+    }
+}
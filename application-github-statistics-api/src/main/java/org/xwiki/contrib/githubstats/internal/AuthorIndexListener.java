@@ -0,0 +1,86 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Keeps the {@link AuthorIndex} up to date when pages are created, updated or deleted, and drops the index of a wiki
+ * when some of these changes are rolled back.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component
+@Named(AuthorIndexListener.NAME)
+@Singleton
+public class AuthorIndexListener implements EventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "githubstats.authorIndex";
+
+    @Inject
+    private AuthorIndex authorIndex;
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public List<Event> getEvents()
+    {
+        return Arrays.<Event>asList(new DocumentCreatedEvent(), new DocumentUpdatedEvent(),
+            new DocumentDeletedEvent(), new DocumentStoreRollbackEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof DocumentStoreRollbackEvent) {
+            this.authorIndex.invalidate((String) source);
+            return;
+        }
+
+        XWikiDocument document = (XWikiDocument) source;
+        if (event instanceof DocumentDeletedEvent) {
+            this.authorIndex.remove(document.getDocumentReference());
+        } else {
+            this.authorIndex.update(document);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The lookup of the GitHub user matching an author. The user is searched successively by login, email and full name,
+ * until a search matches a single user. The outcome of each search is recorded (see {@link AuthorLookupStore}) so that
+ * the next lookups of the same author don't repeat the searches that are known to fail, and directly get the user
+ * when a search is known to have matched.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class AuthorLookup
+{
+    /**
+     * A way to search for the GitHub user matching an author, in the order in which they're tried.
+     */
+    public enum Strategy
+    {
+        /**
+         * Search for the author id in the user logins.
+         */
+        LOGIN("login"),
+
+        /**
+         * Search for the author email in the user public emails.
+         */
+        EMAIL("email"),
+
+        /**
+         * Search for the author id in the user full names, since on git some users set their name as their git id.
+         */
+        FULLNAME("fullname");
+
+        private final String qualifier;
+
+        Strategy(String qualifier)
+        {
+            this.qualifier = qualifier;
+        }
+
+        /**
+         * @return the name of the searched user field, as used by the search qualifiers
+         */
+        public String getQualifier()
+        {
+            return this.qualifier;
+        }
+    }
+
+    /**
+     * The outcome of a search.
+     */
+    public enum Outcome
+    {
+        /**
+         * A single user matched.
+         */
+        FOUND,
+
+        /**
+         * No user matched.
+         */
+        NOT_FOUND,
+
+        /**
+         * Several users matched.
+         */
+        AMBIGUOUS;
+
+        /**
+         * @param count the number of users matching a search
+         * @return the corresponding outcome
+         */
+        public static Outcome fromCount(int count)
+        {
+            return count == 1 ? FOUND : (count == 0 ? NOT_FOUND : AMBIGUOUS);
+        }
+    }
+
+    /**
+     * The recorded outcome of a search.
+     */
+    public static class Record
+    {
+        private final Outcome outcome;
+
+        private final String login;
+
+        private final long date;
+
+        /**
+         * @param outcome the outcome of the search
+         * @param login the login of the matching user, only when the outcome is {@link Outcome#FOUND}
+         * @param date the time of the search, in milliseconds
+         */
+        public Record(Outcome outcome, String login, long date)
+        {
+            this.outcome = outcome;
+            this.login = login;
+            this.date = date;
+        }
+
+        /**
+         * @return the outcome of the search
+         */
+        public Outcome getOutcome()
+        {
+            return this.outcome;
+        }
+
+        /**
+         * @return the login of the matching user, only when the outcome is {@link Outcome#FOUND}
+         */
+        public String getLogin()
+        {
+            return this.login;
+        }
+
+        /**
+         * @return the time of the search, in milliseconds
+         */
+        public long getDate()
+        {
+            return this.date;
+        }
+
+        /**
+         * @param ttl the number of milliseconds during which a record is valid
+         * @param now the current time, in milliseconds
+         * @return {@code true} if the search should be made again
+         */
+        public boolean isExpired(long ttl, long now)
+        {
+            return this.date + ttl <= now;
+        }
+    }
+
+    private final AuthorRecord author;
+
+    private final String knownLogin;
+
+    private final List<Strategy> pendingStrategies = new ArrayList<>();
+
+    private final Map<String, Record> newRecords = new HashMap<>();
+
+    private final Map<Strategy, Outcome> outcomes = new EnumMap<>(Strategy.class);
+
+    private GitHubUserProfile user;
+
+    /**
+     * @param author the author whose GitHub user to look up
+     * @param records the recorded search outcomes, see {@link #getKey(Strategy, String)}
+     * @param ttl the number of milliseconds during which a record is valid
+     * @param now the current time, in milliseconds
+     */
+    public AuthorLookup(AuthorRecord author, Map<String, Record> records, long ttl, long now)
+    {
+        this.author = author;
+
+        String login = null;
+        for (Strategy strategy : Strategy.values()) {
+            String term = getTerm(strategy);
+            if (StringUtils.isEmpty(term)) {
+                continue;
+            }
+            Record record = records.get(getKey(strategy, term));
+            if (record != null && !record.isExpired(ttl, now)) {
+                if (record.getOutcome() != Outcome.FOUND) {
+                    // Known miss
+                    continue;
+                } else if (this.pendingStrategies.isEmpty() && StringUtils.isNotEmpty(record.getLogin())) {
+                    login = record.getLogin();
+                    break;
+                }
+            }
+            // A match of this search would take precedence over the next ones
+            this.pendingStrategies.add(strategy);
+        }
+        this.knownLogin = login;
+    }
+
+    /**
+     * @param author the author whose GitHub user to look up, making all the searches
+     */
+    public AuthorLookup(AuthorRecord author)
+    {
+        this(author, Collections.<String, Record>emptyMap(), 0, 0);
+    }
+
+    /**
+     * @param strategy a search strategy
+     * @param term the searched term
+     * @return the key of the record of the outcome of the search
+     */
+    public static String getKey(Strategy strategy, String term)
+    {
+        return String.format("%s:%s", strategy.getQualifier(), term);
+    }
+
+    /**
+     * @return the author whose GitHub user to look up
+     */
+    public AuthorRecord getAuthor()
+    {
+        return this.author;
+    }
+
+    /**
+     * @param strategy a search strategy
+     * @return the term to search for with the passed strategy
+     */
+    public String getTerm(Strategy strategy)
+    {
+        return strategy == Strategy.EMAIL ? this.author.getEmail() : this.author.getId();
+    }
+
+    /**
+     * @return the login of the GitHub user matching the author, when known from a previous search
+     */
+    public String getKnownLogin()
+    {
+        return this.knownLogin;
+    }
+
+    /**
+     * @return the searches to make, in order, when the user isn't known from a previous search
+     */
+    public List<Strategy> getPendingStrategies()
+    {
+        return this.pendingStrategies;
+    }
+
+    /**
+     * @return {@code true} if all the searches are known to fail, in which case there's nothing to look up
+     */
+    public boolean isKnownMiss()
+    {
+        return this.knownLogin == null && this.pendingStrategies.isEmpty();
+    }
+
+    /**
+     * Record the outcome of a search.
+     *
+     * @param strategy the search strategy
+     * @param outcome the outcome of the search
+     * @param login the login of the matching user, only when the outcome is {@link Outcome#FOUND}
+     * @param now the current time, in milliseconds
+     */
+    public void record(Strategy strategy, Outcome outcome, String login, long now)
+    {
+        this.outcomes.put(strategy, outcome);
+        this.newRecords.put(getKey(strategy, getTerm(strategy)),
+            new Record(outcome, outcome == Outcome.FOUND ? login : null, now));
+    }
+
+    /**
+     * @param strategy a search strategy
+     * @return the outcome of the search made with the passed strategy during this lookup, {@code null} if not made
+     */
+    public Outcome getOutcome(Strategy strategy)
+    {
+        return this.outcomes.get(strategy);
+    }
+
+    /**
+     * @return the outcomes of the searches made during this lookup, by record key
+     */
+    public Map<String, Record> getNewRecords()
+    {
+        return this.newRecords;
+    }
+
+    /**
+     * @return the GitHub user matching the author, {@code null} if not found
+     */
+    public GitHubUserProfile getUser()
+    {
+        return this.user;
+    }
+
+    /**
+     * @param user the GitHub user matching the author
+     */
+    public void setUser(GitHubUserProfile user)
+    {
+        this.user = user;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.githubstats.GitHubStatsException;
+import org.xwiki.environment.Environment;
+
+/**
+ * Remembers, per wiki, the outcome of the searches made to locate the GitHub users matching the authors (see
+ * {@link AuthorLookup}), so that authors who don't exist on GitHub (old identities, bots...) aren't searched again on
+ * each import. The outcomes expire after {@link GitHubStatsConfiguration#getUserLookupTTL()}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = AuthorLookupStore.class)
+@Singleton
+public class AuthorLookupStore
+{
+    private static final String FILE_NAME = "user-lookups.properties";
+
+    private static final char SEPARATOR = ':';
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private GitHubStatsConfiguration configuration;
+
+    /**
+     * @param wiki the wiki in which the authors have been imported
+     * @return the recorded search outcomes, by {@link AuthorLookup#getKey record key}, including the expired ones
+     * @throws GitHubStatsException if the store cannot be read
+     */
+    public synchronized Map<String, AuthorLookup.Record> getRecords(String wiki) throws GitHubStatsException
+    {
+        Map<String, AuthorLookup.Record> records = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : load(wiki).entrySet()) {
+            // <outcome>:<date>[:<login>]
+            String[] tokens = StringUtils.split((String) entry.getValue(), SEPARATOR);
+            if (tokens.length >= 2) {
+                try {
+                    records.put((String) entry.getKey(), new AuthorLookup.Record(
+                        AuthorLookup.Outcome.valueOf(tokens[0]), tokens.length > 2 ? tokens[2] : null,
+                        NumberUtils.toLong(tokens[1])));
+                } catch (IllegalArgumentException e) {
+                    // Ignore the unknown outcomes
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Record new search outcomes, and forget the expired ones. The whole store of the wiki is rewritten, so callers
+     * should record the outcomes of a full import at once.
+     *
+     * @param wiki the wiki in which the authors have been imported
+     * @param records the new search outcomes, by {@link AuthorLookup#getKey record key}
+     * @throws GitHubStatsException if the store cannot be written
+     */
+    public synchronized void addRecords(String wiki, Map<String, AuthorLookup.Record> records)
+        throws GitHubStatsException
+    {
+        if (records.isEmpty()) {
+            // The expired records are forgotten on the next write
+            return;
+        }
+        Properties properties = load(wiki);
+        long ttl = TimeUnit.SECONDS.toMillis(this.configuration.getUserLookupTTL());
+        long now = System.currentTimeMillis();
+        for (Iterator<Object> it = properties.values().iterator(); it.hasNext();) {
+            String[] tokens = StringUtils.split((String) it.next(), SEPARATOR);
+            if (tokens.length < 2 || NumberUtils.toLong(tokens[1]) + ttl <= now) {
+                it.remove();
+            }
+        }
+        for (Map.Entry<String, AuthorLookup.Record> entry : records.entrySet()) {
+            AuthorLookup.Record record = entry.getValue();
+            StringBuilder value = new StringBuilder();
+            value.append(record.getOutcome()).append(SEPARATOR).append(record.getDate());
+            if (record.getLogin() != null) {
+                value.append(SEPARATOR).append(record.getLogin());
+            }
+            properties.setProperty(entry.getKey(), value.toString());
+        }
+        File file = getFile(wiki);
+        try {
+            FileUtils.forceMkdir(file.getParentFile());
+            try (OutputStream output = new FileOutputStream(file)) {
+                properties.store(output, "Outcome of the GitHub user searches per author");
+            }
+        } catch (IOException e) {
+            throw new GitHubStatsException(String.format("Failed to save GitHub user lookups in [%s]", file), e);
+        }
+    }
+
+    /**
+     * Forget all search outcomes of the passed wiki so that the next import searches all the authors again.
+     *
+     * @param wiki the wiki in which the authors have been imported
+     */
+    public synchronized void clear(String wiki)
+    {
+        FileUtils.deleteQuietly(getFile(wiki));
+    }
+
+    private Properties load(String wiki) throws GitHubStatsException
+    {
+        Properties properties = new Properties();
+        File file = getFile(wiki);
+        if (file.exists()) {
+            try (InputStream input = new FileInputStream(file)) {
+                properties.load(input);
+            } catch (IOException e) {
+                throw new GitHubStatsException(String.format("Failed to load GitHub user lookups from [%s]", file),
+                    e);
+            }
+        }
+        return properties;
+    }
+
+    private File getFile(String wiki)
+    {
+        return new File(new File(new File(this.environment.getPermanentDirectory(), "githubstats"), wiki), FILE_NAME);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.model.reference.DocumentReference;
+
+/**
+ * The {@code AuthorClass} properties and the repositories of an author page, read directly from the database without
+ * loading the page.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class AuthorRecord
+{
+    private final DocumentReference documentReference;
+
+    private final String id;
+
+    private final String email;
+
+    private final String name;
+
+    private final String avatar;
+
+    private final String company;
+
+    private final String profileURL;
+
+    private final Map<GitHubRepository, Boolean> repositories;
+
+    /**
+     * @param documentReference the reference of the author page
+     * @param id the author id
+     * @param email the author email
+     * @param name the author full name
+     * @param avatar the URL of the author avatar
+     * @param company the author company
+     * @param profileURL the URL of the author profile
+     * @param repositories the repositories the author has contributed to, associated with the committer flag
+     */
+    public AuthorRecord(DocumentReference documentReference, String id, String email, String name, String avatar,
+        String company, String profileURL, Map<GitHubRepository, Boolean> repositories)
+    {
+        this.documentReference = documentReference;
+        this.id = id;
+        this.email = email;
+        this.name = name;
+        this.avatar = avatar;
+        this.company = company;
+        this.profileURL = profileURL;
+        this.repositories = Collections.unmodifiableMap(repositories);
+    }
+
+    /**
+     * @return the reference of the author page
+     */
+    public DocumentReference getDocumentReference()
+    {
+        return this.documentReference;
+    }
+
+    /**
+     * @return the author id
+     */
+    public String getId()
+    {
+        return this.id;
+    }
+
+    /**
+     * @return the author email
+     */
+    public String getEmail()
+    {
+        return this.email;
+    }
+
+    /**
+     * @return the author full name
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * @return the URL of the author avatar
+     */
+    public String getAvatar()
+    {
+        return this.avatar;
+    }
+
+    /**
+     * @return the author company
+     */
+    public String getCompany()
+    {
+        return this.company;
+    }
+
+    /**
+     * @return the URL of the author profile
+     */
+    public String getProfileURL()
+    {
+        return this.profileURL;
+    }
+
+    /**
+     * @return the repositories the author has contributed to, associated with the committer flag
+     */
+    public Map<GitHubRepository, Boolean> getRepositories()
+    {
+        return this.repositories;
+    }
+}
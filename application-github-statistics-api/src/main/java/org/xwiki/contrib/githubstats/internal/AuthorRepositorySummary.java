@@ -0,0 +1,163 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Compact summary of the repositories of an author, stored on the {@code GitHubStats.AuthorClass} object so that the
+ * repositories and the committer flags can be read without going through the {@code AuthorRepositoryClass} objects.
+ * The summary is made of two fields, each one listing repositories in the {@code (organization)/(repository)} format,
+ * one per line and sorted. The summary is updated each time an author page is saved (see
+ * {@link AuthorRepositorySummaryListener}).
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class AuthorRepositorySummary
+{
+    /**
+     * The AuthorClass field listing all the repositories of the author.
+     */
+    public static final String REPOSITORIES = "repositories";
+
+    /**
+     * The AuthorClass field listing the repositories for which the author is a committer.
+     */
+    public static final String COMMITTER_REPOSITORIES = "committerRepositories";
+
+    private static final char SEPARATOR = '/';
+
+    private static final String LINE_SEPARATOR = "\n";
+
+    private final String repositories;
+
+    private final String committerRepositories;
+
+    /**
+     * @param repositories the repositories of the author, associated with the committer flag
+     */
+    public AuthorRepositorySummary(Map<GitHubRepository, Boolean> repositories)
+    {
+        Collection<String> all = new TreeSet<>();
+        Collection<String> committed = new TreeSet<>();
+        for (Map.Entry<GitHubRepository, Boolean> entry : repositories.entrySet()) {
+            String repository = entry.getKey().getOrganizationId() + SEPARATOR + entry.getKey().getRepositoryId();
+            all.add(repository);
+            if (entry.getValue()) {
+                committed.add(repository);
+            }
+        }
+        this.repositories = StringUtils.join(all, LINE_SEPARATOR);
+        this.committerRepositories = StringUtils.join(committed, LINE_SEPARATOR);
+    }
+
+    /**
+     * @return the value of the {@link #REPOSITORIES} field
+     */
+    public String getRepositories()
+    {
+        return this.repositories;
+    }
+
+    /**
+     * @return the value of the {@link #COMMITTER_REPOSITORIES} field
+     */
+    public String getCommitterRepositories()
+    {
+        return this.committerRepositories;
+    }
+
+    /**
+     * @param repositories the value of the {@link #REPOSITORIES} field
+     * @param committerRepositories the value of the {@link #COMMITTER_REPOSITORIES} field
+     * @return the repositories of the author, associated with the committer flag
+     */
+    public static Map<GitHubRepository, Boolean> parse(String repositories, String committerRepositories)
+    {
+        Map<GitHubRepository, Boolean> result = new LinkedHashMap<>();
+        for (String repository : StringUtils.split(StringUtils.defaultString(repositories), LINE_SEPARATOR)) {
+            GitHubRepository gitHubRepository = parseRepository(repository);
+            if (gitHubRepository != null) {
+                result.put(gitHubRepository, false);
+            }
+        }
+        for (String repository : StringUtils.split(StringUtils.defaultString(committerRepositories), LINE_SEPARATOR)) {
+            GitHubRepository gitHubRepository = parseRepository(repository);
+            if (gitHubRepository != null) {
+                result.put(gitHubRepository, true);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Update the summary stored on an AuthorClass xobject from the AuthorRepositoryClass xobjects of the same page.
+     *
+     * @param authorObject the AuthorClass xobject
+     * @param repositoryObjects the AuthorRepositoryClass xobjects, can be {@code null} and contain {@code null} holes
+     * @return {@code true} if the summary has been modified
+     */
+    public static boolean update(BaseObject authorObject, Collection<BaseObject> repositoryObjects)
+    {
+        Map<GitHubRepository, Boolean> repositories = new HashMap<>();
+        if (repositoryObjects != null) {
+            for (BaseObject repositoryObject : repositoryObjects) {
+                if (repositoryObject != null) {
+                    repositories.merge(new GitHubRepository(repositoryObject.getStringValue("organizationId"),
+                        repositoryObject.getStringValue("repositoryId")),
+                        repositoryObject.getIntValue("committer") == 1, Boolean::logicalOr);
+                }
+            }
+        }
+        AuthorRepositorySummary summary = new AuthorRepositorySummary(repositories);
+        boolean modified = setLargeStringValue(authorObject, REPOSITORIES, summary.getRepositories());
+        modified |= setLargeStringValue(authorObject, COMMITTER_REPOSITORIES, summary.getCommitterRepositories());
+        return modified;
+    }
+
+    private static boolean setLargeStringValue(BaseObject object, String fieldName, String value)
+    {
+        // Also set the value when the field is missing (i.e. on author pages created before it was added)
+        if (object.get(fieldName) != null && value.equals(object.getLargeStringValue(fieldName))) {
+            return false;
+        }
+        object.setLargeStringValue(fieldName, value);
+        return true;
+    }
+
+    private static GitHubRepository parseRepository(String repository)
+    {
+        int index = repository.indexOf(SEPARATOR);
+        if (index <= 0) {
+            return null;
+        }
+        return new GitHubRepository(repository.substring(0, index).trim(), repository.substring(index + 1).trim());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentCreatingEvent;
+import org.xwiki.bridge.event.DocumentUpdatingEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Updates the summary of the repositories of an author (see {@link AuthorRepositorySummary}) before the author page
+ * is saved, whatever the way the page has been modified (import, object editor, scripts, etc.), so that the summary
+ * never gets out of sync with the {@code GitHubStats.AuthorRepositoryClass} objects.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component
+@Named(AuthorRepositorySummaryListener.NAME)
+@Singleton
+public class AuthorRepositorySummaryListener implements EventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "githubstats.authorRepositorySummary";
+
+    private static final EntityReference AUTHOR_CLASS = new EntityReference("AuthorClass", EntityType.DOCUMENT,
+        new EntityReference("GitHubStats", EntityType.SPACE));
+
+    private static final EntityReference AUTHOR_REPOSITORY_CLASS = new EntityReference("AuthorRepositoryClass",
+        EntityType.DOCUMENT, new EntityReference("GitHubStats", EntityType.SPACE));
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public List<Event> getEvents()
+    {
+        return Arrays.<Event>asList(new DocumentCreatingEvent(), new DocumentUpdatingEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        XWikiDocument document = (XWikiDocument) source;
+        BaseObject authorObject = document.getXObject(AUTHOR_CLASS);
+        if (authorObject != null) {
+            AuthorRepositorySummary.update(authorObject, document.getXObjects(AUTHOR_REPOSITORY_CLASS));
+        }
+    }
+}
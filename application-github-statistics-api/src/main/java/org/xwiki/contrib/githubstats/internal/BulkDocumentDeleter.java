@@ -0,0 +1,318 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.contrib.githubstats.BulkDeletionStatus;
+import org.xwiki.contrib.githubstats.GitHubStatsException;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+
+/**
+ * Deletes all the pages having an object of a given class in the background, so that deleting thousands of author
+ * pages doesn't block (and time out) the request. The pages are deleted in groups, each group in a single storage
+ * transaction, and can optionally be deleted without being sent to the recycle bin since they can be imported again.
+ * Only one deletion runs at a time per wiki.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = BulkDocumentDeleter.class)
+@Singleton
+public class BulkDocumentDeleter implements Initializable, Disposable
+{
+    private static class Deletion
+    {
+        private final String wiki;
+
+        private final String type;
+
+        private final boolean skipRecycleBin;
+
+        private final int total;
+
+        private final Runnable completion;
+
+        private final long startTime = System.currentTimeMillis();
+
+        private volatile int deleted;
+
+        private volatile int failed;
+
+        private volatile long endTime;
+
+        private volatile String message;
+
+        Deletion(String wiki, String type, boolean skipRecycleBin, int total, Runnable completion)
+        {
+            this.wiki = wiki;
+            this.type = type;
+            this.skipRecycleBin = skipRecycleBin;
+            this.total = total;
+            this.completion = completion;
+        }
+
+        BulkDeletionStatus getStatus()
+        {
+            return new BulkDeletionStatus(this.wiki, this.type, this.skipRecycleBin, this.total, this.deleted,
+                this.failed, this.startTime, this.endTime, this.message);
+        }
+    }
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private GitHubStatsConfiguration configuration;
+
+    @Inject
+    private GitHubStatsQueries queries;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private ObservationManager observationManager;
+
+    @Inject
+    @Named("hibernate")
+    private Provider<XWikiStoreInterface> hibernateStoreProvider;
+
+    private final Map<String, Deletion> deletions = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "GitHubStats bulk deletion");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Start deleting the pages of the current wiki having an object of the passed class, in the background.
+     *
+     * @param type the type of pages to delete, used to report the progress ({@code authors} or {@code repositories})
+     * @param xclassReference the reference of the class
+     * @param skipRecycleBin {@code true} to delete the pages without sending them to the recycle bin
+     * @return the status of the started deletion
+     * @throws GitHubStatsException if the pages to delete cannot be found or if a deletion is already running in the
+     *             current wiki
+     */
+    public BulkDeletionStatus start(String type, EntityReference xclassReference, boolean skipRecycleBin)
+        throws GitHubStatsException
+    {
+        return start(type, xclassReference, skipRecycleBin, null);
+    }
+
+    /**
+     * Start deleting the pages of the current wiki having an object of the passed class, in the background.
+     *
+     * @param type the type of pages to delete, used to report the progress ({@code authors} or {@code repositories})
+     * @param xclassReference the reference of the class
+     * @param skipRecycleBin {@code true} to delete the pages without sending them to the recycle bin
+     * @param completion called in the background once all the pages have been processed (even if some of them failed
+     *            to be deleted) and before the deletion is reported as finished, {@code null} if not needed
+     * @return the status of the started deletion
+     * @throws GitHubStatsException if the pages to delete cannot be found or if a deletion is already running in the
+     *             current wiki
+     */
+    public synchronized BulkDeletionStatus start(String type, EntityReference xclassReference,
+        boolean skipRecycleBin, Runnable completion) throws GitHubStatsException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        String wiki = xcontext.getWikiId();
+        Deletion current = this.deletions.get(wiki);
+        if (current != null && current.endTime == 0) {
+            throw new GitHubStatsException(String.format("A deletion of [%s] pages is already running in wiki [%s]",
+                current.type, wiki));
+        }
+
+        List<EntityReference> references = new ArrayList<>();
+        try {
+            Query query = this.queries.createQuery(GitHubStatsQueries.DOCUMENTS_WITH_CLASS);
+            query.bindValue("className", this.queries.getClassName(xclassReference));
+            for (Object[] documentData : query.<Object[]>execute()) {
+                references.add(new EntityReference((String) documentData[1], EntityType.DOCUMENT,
+                    new EntityReference((String) documentData[0], EntityType.SPACE)));
+            }
+        } catch (QueryException e) {
+            throw new GitHubStatsException(String.format("Failed to find the [%s] pages to delete", type), e);
+        }
+
+        Deletion deletion = new Deletion(wiki, type, skipRecycleBin, references.size(), completion);
+        this.deletions.put(wiki, deletion);
+        DocumentReference userReference = xcontext.getUserReference();
+        this.executor.execute(() -> delete(deletion, references, userReference));
+        return deletion.getStatus();
+    }
+
+    /**
+     * @param wiki a wiki
+     * @return the status of the last deletion started in the passed wiki, {@code null} if there's none
+     */
+    public BulkDeletionStatus getStatus(String wiki)
+    {
+        Deletion deletion = this.deletions.get(wiki);
+        return deletion != null ? deletion.getStatus() : null;
+    }
+
+    /**
+     * @param wiki a wiki
+     * @param type a type of pages ({@code authors} or {@code repositories})
+     * @return {@code true} if a deletion of the passed type of pages is running in the passed wiki
+     */
+    public boolean isRunning(String wiki, String type)
+    {
+        Deletion deletion = this.deletions.get(wiki);
+        return deletion != null && deletion.endTime == 0 && deletion.type.equals(type);
+    }
+
+    private void delete(Deletion deletion, List<EntityReference> references, DocumentReference userReference)
+    {
+        try {
+            // The deletion runs outside of any request, it needs its own context
+            this.executionContextManager.initialize(new ExecutionContext());
+            XWikiContext xcontext = this.xcontextProvider.get();
+            xcontext.setWikiId(deletion.wiki);
+            xcontext.setUserReference(userReference);
+
+            int size = Math.max(1, this.configuration.getImportBatchSize());
+            for (int i = 0; i < references.size(); i += size) {
+                if (Thread.currentThread().isInterrupted()) {
+                    deletion.message = "Interrupted";
+                    break;
+                }
+                deleteGroup(deletion, references.subList(i, Math.min(i + size, references.size())), xcontext);
+                this.logger.info("Deleted [{}] of [{}] [{}] pages ([{}] failed)", deletion.deleted, deletion.total,
+                    deletion.type, deletion.failed);
+            }
+        } catch (Exception e) {
+            deletion.message = ExceptionUtils.getRootCauseMessage(e);
+            this.logger.error("Failed to delete the [{}] pages of wiki [{}]", deletion.type, deletion.wiki, e);
+        } finally {
+            complete(deletion);
+            deletion.endTime = System.currentTimeMillis();
+            this.execution.removeContext();
+        }
+    }
+
+    private void complete(Deletion deletion)
+    {
+        if (deletion.completion != null) {
+            try {
+                deletion.completion.run();
+            } catch (Exception e) {
+                this.logger.error("Failed to complete the deletion of the [{}] pages of wiki [{}]", deletion.type,
+                    deletion.wiki, e);
+            }
+        }
+    }
+
+    private void deleteGroup(Deletion deletion, List<EntityReference> references, XWikiContext xcontext)
+    {
+        XWikiStoreInterface store = this.hibernateStoreProvider.get();
+        if (store instanceof XWikiHibernateBaseStore) {
+            XWikiHibernateBaseStore hibernateStore = (XWikiHibernateBaseStore) store;
+            try {
+                // The deletions don't start their own transaction when there's already one in the context
+                hibernateStore.beginTransaction(xcontext);
+                for (EntityReference reference : references) {
+                    deleteDocument(reference, deletion.skipRecycleBin, xcontext);
+                }
+                hibernateStore.endTransaction(xcontext, true);
+                deletion.deleted += references.size();
+                return;
+            } catch (Exception e) {
+                this.logger.warn("Failed to delete [{}] documents in a single transaction, deleting them one by one. "
+                    + "Reason: [{}]", references.size(), ExceptionUtils.getRootCauseMessage(e));
+                hibernateStore.endTransaction(xcontext, false);
+                // The listeners have been notified of deletions that didn't happen
+                this.observationManager.notify(new DocumentStoreRollbackEvent(), deletion.wiki);
+            }
+        }
+
+        for (EntityReference reference : references) {
+            try {
+                deleteDocument(reference, deletion.skipRecycleBin, xcontext);
+                deletion.deleted++;
+            } catch (XWikiException e) {
+                deletion.failed++;
+                this.logger.warn("Failed to delete document [{}]. Reason: [{}]", reference,
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+    }
+
+    private void deleteDocument(EntityReference reference, boolean skipRecycleBin, XWikiContext xcontext)
+        throws XWikiException
+    {
+        XWikiDocument document = xcontext.getWiki().getDocument(reference, xcontext);
+        if (!document.isNew()) {
+            xcontext.getWiki().deleteDocument(document, !skipRecycleBin, xcontext);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.githubstats.Author;
+import org.xwiki.contrib.githubstats.AuthorActivity;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.environment.Environment;
+
+/**
+ * Persistent index of the commit dates per repository and per author. The index of a repository is updated
+ * incrementally by walking only the commits added since the last indexed HEAD, and questions such as "how many commits
+ * since N days" or "when was the first commit" are answered with a binary search in the sorted dates instead of walking
+ * the history. Stored in the permanent directory, next to the local Git clones.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = CommitActivityIndex.class)
+@Singleton
+public class CommitActivityIndex
+{
+    private static final int FORMAT_VERSION = 3;
+
+    /**
+     * Commits of an author in a repository.
+     */
+    private static class AuthorCommits
+    {
+        /**
+         * Author dates of the commits, in milliseconds since the epoch, sorted once the walk is done.
+         */
+        private long[] times;
+
+        private int size;
+
+        private long latest = Long.MIN_VALUE;
+
+        /**
+         * Id of the latest commit, used to find the GitHub user of the author.
+         */
+        private String latestCommit;
+
+        AuthorCommits(int capacity)
+        {
+            this.times = new long[Math.max(capacity, 4)];
+        }
+
+        AuthorCommits copy()
+        {
+            AuthorCommits copy = new AuthorCommits(this.size + 4);
+            System.arraycopy(this.times, 0, copy.times, 0, this.size);
+            copy.size = this.size;
+            copy.latest = this.latest;
+            copy.latestCommit = this.latestCommit;
+            return copy;
+        }
+
+        void add(long time, String commit)
+        {
+            if (this.size == this.times.length) {
+                this.times = Arrays.copyOf(this.times, this.size * 2);
+            }
+            this.times[this.size++] = time;
+            if (time >= this.latest) {
+                this.latest = time;
+                this.latestCommit = commit;
+            }
+        }
+
+        void sort()
+        {
+            Arrays.sort(this.times, 0, this.size);
+        }
+
+        /**
+         * @return the index of the first commit made at or after the passed time
+         */
+        int indexOf(long time)
+        {
+            int low = 0;
+            int high = this.size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (this.times[middle] < time) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Index of a single repository.
+     */
+    private static class RepositoryIndex
+    {
+        private String head;
+
+        /**
+         * Replaced as a whole, together with the head, once an update succeeds.
+         */
+        private Map<Author, AuthorCommits> authors = new HashMap<>();
+    }
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<GitHubRepository, RepositoryIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Bring the index of the passed repository up to date with its HEAD and compute the activity of its authors.
+     *
+     * @param gitHubRepository the repository
+     * @param repository the local Git repository
+     * @param since only count the commits made since that date, {@code null} to count all commits
+     * @return the activity of the authors who made commits since the passed date
+     * @throws IOException if the repository cannot be read
+     */
+    public RepositoryScanResult getActivity(GitHubRepository gitHubRepository, Repository repository, Date since)
+        throws IOException
+    {
+        RepositoryIndex index = this.indexes.computeIfAbsent(gitHubRepository, this::load);
+        synchronized (index) {
+            update(gitHubRepository, repository, index);
+
+            if (index.head == null) {
+                return new RepositoryScanResult(null, Collections.emptyMap(), false);
+            }
+            Map<Author, AuthorActivity> activities = new HashMap<>();
+            for (Map.Entry<Author, AuthorCommits> entry : index.authors.entrySet()) {
+                AuthorActivity activity = getActivity(gitHubRepository, entry.getKey(), entry.getValue(), since);
+                if (activity != null) {
+                    activities.put(entry.getKey(), activity);
+                }
+            }
+            return new RepositoryScanResult(index.head, activities, false);
+        }
+    }
+
+    /**
+     * Bring the index of the passed repository up to date with its HEAD.
+     *
+     * @param gitHubRepository the repository
+     * @param repository the local Git repository
+     * @throws IOException if the repository cannot be read
+     */
+    public void update(GitHubRepository gitHubRepository, Repository repository) throws IOException
+    {
+        RepositoryIndex index = this.indexes.computeIfAbsent(gitHubRepository, this::load);
+        synchronized (index) {
+            update(gitHubRepository, repository, index);
+        }
+    }
+
+    /**
+     * Bring the index of the passed repository up to date with its HEAD and pick a representative commit for each of
+     * its authors, which GitHub can map to the author's GitHub user.
+     *
+     * @param gitHubRepository the repository
+     * @param repository the local Git repository
+     * @return the id of the latest commit of each author of the repository
+     * @throws IOException if the repository cannot be read
+     */
+    public Map<Author, String> getRepresentativeCommits(GitHubRepository gitHubRepository, Repository repository)
+        throws IOException
+    {
+        RepositoryIndex index = this.indexes.computeIfAbsent(gitHubRepository, this::load);
+        synchronized (index) {
+            update(gitHubRepository, repository, index);
+
+            Map<Author, String> commits = new HashMap<>();
+            for (Map.Entry<Author, AuthorCommits> entry : index.authors.entrySet()) {
+                if (entry.getValue().latestCommit != null) {
+                    commits.put(entry.getKey(), entry.getValue().latestCommit);
+                }
+            }
+            return commits;
+        }
+    }
+
+    private AuthorActivity getActivity(GitHubRepository gitHubRepository, Author author, AuthorCommits commits,
+        Date since)
+    {
+        int first = since != null ? commits.indexOf(since.getTime()) : 0;
+        if (first >= commits.size) {
+            return null;
+        }
+
+        AuthorActivity activity = new AuthorActivity(author);
+        activity.addCommits(commits.size - first, commits.times[first], commits.times[commits.size - 1]);
+        activity.getRepositories().add(gitHubRepository);
+        return activity;
+    }
+
+    private void update(GitHubRepository gitHubRepository, Repository repository, RepositoryIndex index)
+        throws IOException
+    {
+        ObjectId head = repository.resolve(Constants.HEAD);
+        String headId = head != null ? head.name() : null;
+        if (Objects.equals(headId, index.head)) {
+            return;
+        }
+
+        // Work on a copy so that a walk failing midway leaves the index as it was, instead of counting the commits
+        // walked so far a second time on the next update
+        Map<Author, AuthorCommits> authors = new HashMap<>();
+        // The commits of each author by name and email, so that an author is only created the first time it's found
+        Map<String, Map<String, AuthorCommits>> commitsByIdent = new HashMap<>();
+        if (head != null) {
+            try (RevWalk walk = new RevWalk(repository)) {
+                walk.markStart(walk.parseCommit(head));
+                if (index.head != null && markUninteresting(walk, index.head)) {
+                    for (Map.Entry<Author, AuthorCommits> entry : index.authors.entrySet()) {
+                        Author author = entry.getKey();
+                        AuthorCommits commits = entry.getValue().copy();
+                        authors.put(author, commits);
+                        commitsByIdent.computeIfAbsent(author.getId(), key -> new HashMap<>())
+                            .put(author.getEmail(), commits);
+                    }
+                }
+                // Not iterating the walk since its iterator hides read errors in runtime exceptions
+                RevCommit commit;
+                while ((commit = walk.next()) != null) {
+                    PersonIdent personIdent = commit.getAuthorIdent();
+                    Map<String, AuthorCommits> commitsByEmail =
+                        commitsByIdent.computeIfAbsent(personIdent.getName(), key -> new HashMap<>());
+                    AuthorCommits commits = commitsByEmail.get(personIdent.getEmailAddress());
+                    if (commits == null) {
+                        commits = new AuthorCommits(0);
+                        commitsByEmail.put(personIdent.getEmailAddress(), commits);
+                        authors.put(new Author(personIdent.getName(), personIdent.getEmailAddress()), commits);
+                    }
+                    commits.add(personIdent.getWhen().getTime(), commit.name());
+                }
+            }
+            for (AuthorCommits commits : authors.values()) {
+                commits.sort();
+            }
+        }
+        index.authors = authors;
+        index.head = headId;
+
+        save(gitHubRepository, index);
+    }
+
+    private boolean markUninteresting(RevWalk walk, String indexedHead) throws IOException
+    {
+        try {
+            walk.markUninteresting(walk.parseCommit(ObjectId.fromString(indexedHead)));
+            return true;
+        } catch (MissingObjectException | IncorrectObjectTypeException | IllegalArgumentException e) {
+            this.logger.debug("Indexed commit [{}] not found, indexing the full history", indexedHead);
+            return false;
+        }
+    }
+
+    private RepositoryIndex load(GitHubRepository gitHubRepository)
+    {
+        RepositoryIndex index = new RepositoryIndex();
+        File file = getFile(gitHubRepository);
+        if (file.exists()) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (input.readInt() == FORMAT_VERSION) {
+                    index.head = StringUtils.defaultIfEmpty(input.readUTF(), null);
+                    int authorCount = input.readInt();
+                    for (int i = 0; i < authorCount; i++) {
+                        Author author = new Author(input.readUTF(), input.readUTF());
+                        String latestCommit = StringUtils.defaultIfEmpty(input.readUTF(), null);
+                        int commitCount = input.readInt();
+                        AuthorCommits commits = new AuthorCommits(commitCount);
+                        for (int j = 0; j < commitCount; j++) {
+                            commits.add(input.readLong(), null);
+                        }
+                        commits.latestCommit = latestCommit;
+                        index.authors.put(author, commits);
+                    }
+                }
+            } catch (IOException e) {
+                // The index will be rebuilt
+                this.logger.warn("Failed to load the commit activity index [{}]. Reason: [{}]", file,
+                    ExceptionUtils.getRootCauseMessage(e));
+                index = new RepositoryIndex();
+            }
+        }
+        return index;
+    }
+
+    private void save(GitHubRepository gitHubRepository, RepositoryIndex index) throws IOException
+    {
+        File file = getFile(gitHubRepository);
+        FileUtils.forceMkdir(file.getParentFile());
+        // Write to a temporary file first so that a crash cannot leave a truncated index behind
+        File temporaryFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream output =
+            new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile))))
+        {
+            output.writeInt(FORMAT_VERSION);
+            if (index.head == null) {
+                output.writeUTF("");
+                output.writeInt(0);
+            } else {
+                output.writeUTF(index.head);
+                output.writeInt(index.authors.size());
+                for (Map.Entry<Author, AuthorCommits> entry : index.authors.entrySet()) {
+                    output.writeUTF(Objects.toString(entry.getKey().getId(), ""));
+                    output.writeUTF(Objects.toString(entry.getKey().getEmail(), ""));
+                    AuthorCommits commits = entry.getValue();
+                    output.writeUTF(Objects.toString(commits.latestCommit, ""));
+                    output.writeInt(commits.size);
+                    for (int i = 0; i < commits.size; i++) {
+                        output.writeLong(commits.times[i]);
+                    }
+                }
+            }
+        }
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private File getFile(GitHubRepository gitHubRepository)
+    {
+        File activityDirectory =
+            new File(new File(this.environment.getPermanentDirectory(), "githubstats"), "activity");
+        return new File(new File(activityDirectory, gitHubRepository.getOrganizationId()),
+            gitHubRepository.getRepositoryId() + ".index");
+    }
+}
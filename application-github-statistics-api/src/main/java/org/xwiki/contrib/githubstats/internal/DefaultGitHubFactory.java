@@ -19,23 +19,108 @@
  */
 package org.xwiki.contrib.githubstats.internal;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.apache.commons.lang3.StringUtils;
 import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.HttpConnector;
+import org.kohsuke.github.RateLimitHandler;
+import org.kohsuke.github.extras.OkHttpConnector;
+import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
 import org.xwiki.contrib.githubstats.GitHubFactory;
+import org.xwiki.environment.Environment;
 
+import com.squareup.okhttp.Cache;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.OkUrlFactory;
+
+/**
+ * Hands out GitHub clients that are reused for the same credentials. All the clients share the same HTTP client, so
+ * that connections are reused, and the same on-disk cache of the responses: the cached responses are revalidated with
+ * conditional requests (ETag), which don't count against the GitHub rate limit when the data hasn't changed.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
 @Component
 @Singleton
-public class DefaultGitHubFactory implements GitHubFactory
+public class DefaultGitHubFactory implements GitHubFactory, Initializable, Disposable
 {
+    private static final int MAX_CLIENTS = 100;
+
+    private static final String ANONYMOUS = "";
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private GitHubStatsConfiguration configuration;
+
+    @Inject
+    private GitHubUserResolver userResolver;
+
+    private HttpConnector connector;
+
+    private Cache cache;
+
+    /**
+     * The clients by credentials, the least recently used ones are discarded first.
+     */
+    private final Map<String, GitHub> clients = new LinkedHashMap<String, GitHub>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, GitHub> eldest)
+        {
+            return size() > MAX_CLIENTS;
+        }
+    };
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        OkHttpClient httpClient = new OkHttpClient();
+        long cacheSize = this.configuration.getGitHubCacheSize() * 1024L * 1024L;
+        if (cacheSize > 0) {
+            this.cache = new Cache(new File(new File(this.environment.getPermanentDirectory(), "githubstats"),
+                "http-cache"), cacheSize);
+            httpClient.setCache(this.cache);
+        }
+        this.connector = new OkHttpConnector(new OkUrlFactory(httpClient));
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.cache != null) {
+            try {
+                this.cache.close();
+            } catch (IOException e) {
+                this.logger.warn("Failed to close the GitHub response cache", e);
+            }
+        }
+    }
+
     @Override
     public GitHub createGitHub() throws IOException
     {
-        return GitHub.connectAnonymously();
+        return getGitHub(ANONYMOUS, null, null);
     }
 
     @Override
@@ -45,9 +130,28 @@ public class DefaultGitHubFactory implements GitHubFactory
         if (StringUtils.isEmpty(login) && StringUtils.isEmpty(authToken)) {
             gitHub = createGitHub();
         } else {
-            gitHub = GitHub.connect(login, authToken);
+            gitHub = getGitHub(String.format("%s:%s", login, authToken), login, authToken);
         }
 
         return gitHub;
     }
+
+    private synchronized GitHub getGitHub(String key, String login, String authToken) throws IOException
+    {
+        GitHub gitHub = this.clients.get(key);
+        if (gitHub == null) {
+            // Fail instead of blocking when the rate limit is reached: the waits are handled by the
+            // GitHubRequestScheduler, which knows which budget a call counts against
+            GitHubBuilder builder =
+                new GitHubBuilder().withConnector(this.connector).withRateLimitHandler(RateLimitHandler.FAIL);
+            if (!ANONYMOUS.equals(key)) {
+                builder.withOAuthToken(authToken, login);
+            }
+            gitHub = builder.build();
+            this.clients.put(key, gitHub);
+            // The GraphQL API needs the token, which isn't exposed by the client
+            this.userResolver.register(gitHub, authToken);
+        }
+        return gitHub;
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.configuration.ConfigurationSource;
+
+/**
+ * Reads the GitHub Stats configuration from {@code xwiki.properties}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component
+@Singleton
+public class DefaultGitHubStatsConfiguration implements GitHubStatsConfiguration
+{
+    private static final String PREFIX = "githubstats.";
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Override
+    public int getScanThreads()
+    {
+        return this.configuration.getProperty(PREFIX + "scan.threads", 4);
+    }
+
+    @Override
+    public int getMaxConnectionsPerHost()
+    {
+        return this.configuration.getProperty(PREFIX + "scan.maxConnectionsPerHost", 2);
+    }
+
+    @Override
+    public boolean isBareRepositoryStorage()
+    {
+        return this.configuration.getProperty(PREFIX + "git.bare", false);
+    }
+
+    @Override
+    public int getRefreshPeriod()
+    {
+        return this.configuration.getProperty(PREFIX + "refresh.period", 3600);
+    }
+
+    @Override
+    public int getFailureBackoff()
+    {
+        return this.configuration.getProperty(PREFIX + "failure.backoff", 300);
+    }
+
+    @Override
+    public int getMaxFailureBackoff()
+    {
+        return this.configuration.getProperty(PREFIX + "failure.maxBackoff", 86400);
+    }
+
+    @Override
+    public int getMaintenancePeriod()
+    {
+        return this.configuration.getProperty(PREFIX + "maintenance.period", 7 * 24 * 3600);
+    }
+
+    @Override
+    public int getImportBatchSize()
+    {
+        return this.configuration.getProperty(PREFIX + "import.batchSize", 100);
+    }
+
+    @Override
+    public int getGitHubCacheSize()
+    {
+        return this.configuration.getProperty(PREFIX + "github.cacheSize", 50);
+    }
+
+    @Override
+    public int getUserLookupTTL()
+    {
+        return this.configuration.getProperty(PREFIX + "github.userLookupTTL", 30 * 24 * 3600);
+    }
+
+    @Override
+    public boolean isCommitUserLookup()
+    {
+        return this.configuration.getProperty(PREFIX + "github.commitUserLookup", true);
+    }
+}
@@ -19,26 +19,31 @@
  */
 package org.xwiki.contrib.githubstats.internal;
 
-import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.Repository;
 import org.gitective.core.stat.UserCommitActivity;
 import org.kohsuke.github.GHRepository;
@@ -49,21 +54,27 @@ import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.context.Execution;
 import org.xwiki.contrib.githubstats.Author;
+import org.xwiki.contrib.githubstats.AuthorActivity;
+import org.xwiki.contrib.githubstats.AuthorDiscoveryListener;
+import org.xwiki.contrib.githubstats.BulkDeletionStatus;
 import org.xwiki.contrib.githubstats.GitHubStatsManager;
 import org.xwiki.contrib.githubstats.GitHubRepository;
 import org.xwiki.contrib.githubstats.GitHubStatsException;
-import org.xwiki.git.GitManager;
+import org.xwiki.contrib.githubstats.RepositoryFailure;
+import org.xwiki.contrib.githubstats.internal.RepositoryScanExecutor.RepositoryResultHandler;
 import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.observation.ObservationManager;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
-import org.xwiki.query.QueryManager;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.store.XWikiStoreInterface;
 
 @Component
 @Singleton
@@ -98,67 +109,289 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
     EntityReference REPOSITORY_CLASS = new EntityReference("RepositoryClass", EntityType.DOCUMENT,
         new EntityReference(SPACE, EntityType.SPACE));
 
+    /**
+     * The type of pages of the background deletions of the author pages.
+     */
+    private static final String AUTHOR_PAGES = "authors";
+
+    /**
+     * The maximum number of authors found by an import from Git whose page is kept in memory, waiting for the other
+     * repositories they've contributed to to be scanned.
+     */
+    private static final int MAX_PENDING_AUTHORS = 10000;
+
+    /**
+     * Saves the author pages of an import from Git while the repositories are scanned. The repositories found for
+     * each author are kept in memory so that each page is saved once with all its repositories, when the scan is
+     * finished or, to bound the memory, when the author is the least recently found one of too many pending authors.
+     * The page of an author found again after having been saved is merged, in place if it's still pending in the save
+     * batch.
+     */
+    private final class AuthorImport
+    {
+        private final boolean overwrite;
+
+        private final Set<GitHubRepository> repositories;
+
+        private final DocumentSaveBatch batch;
+
+        /**
+         * The sets of repositories are stored as bitsets of repository ids.
+         */
+        private final IdentityDictionary<GitHubRepository> repositoryIds = new IdentityDictionary<>();
+
+        private final BitSet scannedRepositories = new BitSet();
+
+        /**
+         * The repositories of the authors whose page hasn't been saved yet, least recently found first.
+         */
+        private final Map<Author, BitSet> pendingAuthors = new LinkedHashMap<>(16, 0.75f, true);
+
+        /**
+         * When overwriting, the authors whose page has already been reset.
+         */
+        private final Set<Author> overwrittenAuthors = new HashSet<>();
+
+        /**
+         * When overwriting, the repositories of the existing author pages that hadn't been scanned yet when the page
+         * was reset, and that the author may thus not contribute to anymore.
+         */
+        private final Map<Author, BitSet> unconfirmedRepositories = new HashMap<>();
+
+        AuthorImport(boolean overwrite, Set<GitHubRepository> repositories, DocumentSaveBatch batch)
+        {
+            this.overwrite = overwrite;
+            this.repositories = repositories;
+            this.batch = batch;
+        }
+
+        void add(GitHubRepository repository, Collection<Author> authors) throws GitHubStatsException
+        {
+            int repositoryId = this.repositoryIds.getId(repository);
+            this.scannedRepositories.set(repositoryId);
+            for (Author author : authors) {
+                BitSet authorRepositories = this.unconfirmedRepositories.get(author);
+                if (authorRepositories != null) {
+                    authorRepositories.clear(repositoryId);
+                    if (authorRepositories.isEmpty()) {
+                        this.unconfirmedRepositories.remove(author);
+                    }
+                }
+                this.pendingAuthors.computeIfAbsent(author, key -> new BitSet()).set(repositoryId);
+            }
+            Iterator<Map.Entry<Author, BitSet>> iterator = this.pendingAuthors.entrySet().iterator();
+            while (this.pendingAuthors.size() > MAX_PENDING_AUTHORS) {
+                Map.Entry<Author, BitSet> entry = iterator.next();
+                iterator.remove();
+                save(entry.getKey(), entry.getValue());
+            }
+        }
+
+        void finish() throws GitHubStatsException
+        {
+            for (Map.Entry<Author, BitSet> entry : this.pendingAuthors.entrySet()) {
+                save(entry.getKey(), entry.getValue());
+            }
+            this.pendingAuthors.clear();
+            // Remove the repositories the overwritten authors haven't been found in
+            for (Map.Entry<Author, BitSet> entry : this.unconfirmedRepositories.entrySet()) {
+                BitSet staleRepositories = entry.getValue();
+                // Repositories that failed to be scanned can't be checked
+                staleRepositories.and(this.scannedRepositories);
+                if (!staleRepositories.isEmpty()) {
+                    removeAuthorRepositories(entry.getKey(), getRepositories(staleRepositories), this.batch);
+                }
+            }
+        }
+
+        private void save(Author author, BitSet foundRepositories) throws GitHubStatsException
+        {
+            if (this.overwrite && this.overwrittenAuthors.add(author)) {
+                // Reset the author the first time it's saved, but keep the repositories that will be checked later
+                Set<GitHubRepository> authorRepositories = getAuthorRepositories(author, this.batch);
+                authorRepositories.retainAll(this.repositories);
+                BitSet uncheckedRepositories = new BitSet();
+                for (Iterator<GitHubRepository> iterator = authorRepositories.iterator(); iterator.hasNext();) {
+                    int repositoryId = this.repositoryIds.getId(iterator.next());
+                    if (this.scannedRepositories.get(repositoryId)) {
+                        iterator.remove();
+                    } else {
+                        uncheckedRepositories.set(repositoryId);
+                    }
+                }
+                if (!uncheckedRepositories.isEmpty()) {
+                    this.unconfirmedRepositories.put(author, uncheckedRepositories);
+                }
+                authorRepositories.addAll(getRepositories(foundRepositories));
+                importAuthorInternal(author.getId(), author.getEmail(), authorRepositories, true, this.batch);
+            } else {
+                mergeAuthor(author.getId(), author.getEmail(), getRepositories(foundRepositories), this.batch);
+            }
+        }
+
+        private Set<GitHubRepository> getRepositories(BitSet repositoryBits)
+        {
+            Set<GitHubRepository> result = new HashSet<>();
+            for (int i = repositoryBits.nextSetBit(0); i >= 0; i = repositoryBits.nextSetBit(i + 1)) {
+                result.add(this.repositoryIds.getValue(i));
+            }
+            return result;
+        }
+    }
+
     @Inject
     private Logger logger;
 
     @Inject
-    private GitManager gitManager;
+    private Execution execution;
+
+    @Inject
+    @Named("compactwiki")
+    private EntityReferenceSerializer<String> compactWikiSerializer;
 
     @Inject
-    private QueryManager queryManager;
+    private RepositoryScanExecutor scanExecutor;
 
     @Inject
-    private EntityReferenceSerializer<String> defaultSerializer;
+    private RepositoryScanner repositoryScanner;
 
     @Inject
-    private Execution execution;
+    private ScanWatermarkStore watermarkStore;
 
     @Inject
-    @Named("compactwiki")
-    private EntityReferenceSerializer<String> compactWikiSerializer;
+    private CommitActivityIndex activityIndex;
+
+    @Inject
+    private RepositoryStore repositoryStore;
+
+    @Inject
+    private RepositoryRefreshScheduler refreshScheduler;
+
+    @Inject
+    private RepositoryFailureRegistry failureRegistry;
+
+    @Inject
+    private GitHubStatsConfiguration configuration;
+
+    @Inject
+    @Named("hibernate")
+    private Provider<XWikiStoreInterface> hibernateStoreProvider;
+
+    @Inject
+    private AuthorIndex authorIndex;
+
+    @Inject
+    private GitHubStatsQueries queries;
+
+    @Inject
+    private BulkDocumentDeleter bulkDeleter;
+
+    @Inject
+    private RepositoryRegistry repositoryRegistry;
+
+    @Inject
+    private GitHubRequestScheduler gitHubScheduler;
+
+    @Inject
+    private GitHubUserResolver userResolver;
+
+    @Inject
+    private AuthorLookupStore lookupStore;
+
+    @Inject
+    private ObservationManager observationManager;
 
     @Override
     public Map<Author, Set<GitHubRepository>> findAllAuthors() throws GitHubStatsException
     {
-        // For each repository found, find all authors that have ever contributed code.
-        Map<Author, Set<GitHubRepository>> authors = new HashMap<>();
-        for (Map.Entry<GitHubRepository, String> entry : getAllRepositoryURLs().entrySet()) {
-            try {
-                Repository repository = getRepository(entry.getValue(), entry.getKey());
-                for (PersonIdent personIdent : this.gitManager.findAuthors(Arrays.asList(repository))) {
-                    Author author = new Author(personIdent.getName(), personIdent.getEmailAddress());
-                    Set<GitHubRepository> reposForAuthor = authors.get(author);
-                    if (reposForAuthor == null) {
-                        reposForAuthor = new HashSet<>();
-                        authors.put(author, reposForAuthor);
-                    }
-                    reposForAuthor.add(
-                        new GitHubRepository(entry.getKey().getOrganizationId(), entry.getKey().getRepositoryId()));
+        // Aggregate the authors and repositories as ids and only create the sets of repositories at the end
+        IdentityDictionary<Author> authorIds = new IdentityDictionary<>();
+        IdentityDictionary<GitHubRepository> repositoryIds = new IdentityDictionary<>();
+        List<BitSet> authorRepositories = new ArrayList<>();
+        findAllAuthors((repository, repositoryAuthors) -> {
+            int repositoryId = repositoryIds.getId(repository);
+            for (Author author : repositoryAuthors) {
+                int authorId = authorIds.getId(author);
+                if (authorId == authorRepositories.size()) {
+                    authorRepositories.add(new BitSet());
                 }
-            } catch (Exception e) {
-                // A repository can fail to be cloned/updated (for example if it's empty), in which case we simply
-                // ignore it.
+                authorRepositories.get(authorId).set(repositoryId);
             }
-        }
+        });
 
+        Map<Author, Set<GitHubRepository>> authors = new HashMap<>();
+        for (int authorId = 0; authorId < authorIds.size(); authorId++) {
+            BitSet repositoryBits = authorRepositories.get(authorId);
+            Set<GitHubRepository> reposForAuthor = new HashSet<>();
+            for (int i = repositoryBits.nextSetBit(0); i >= 0; i = repositoryBits.nextSetBit(i + 1)) {
+                reposForAuthor.add(repositoryIds.getValue(i));
+            }
+            authors.put(authorIds.getValue(authorId), reposForAuthor);
+        }
         return authors;
     }
 
+    @Override
+    public void findAllAuthors(AuthorDiscoveryListener listener) throws GitHubStatsException
+    {
+        findAuthors(getAllRepositoryURLs(), Collections.emptyMap(), new HashMap<>(), (repository, authors) -> {
+            if (!authors.isEmpty()) {
+                listener.onAuthorsDiscovered(repository, authors);
+            }
+        });
+    }
+
+    /**
+     * For each repository found, find all authors that have contributed code since the passed watermarks. Repositories
+     * are cloned/updated and scanned concurrently and the authors are handed over as each repository completes.
+     *
+     * @param repositories the repositories to scan, with their Git URIs
+     * @param watermarks the HEAD commit of the previous scan of each repository, the full history is walked for the
+     *        repositories not in this map
+     * @param heads filled with the HEAD commit of each scanned repository, to be used as the next watermarks
+     * @param listener receives the authors of each scanned repository (even when there are none), in the current
+     *        thread
+     */
+    private void findAuthors(Map<GitHubRepository, String> repositories, Map<GitHubRepository, String> watermarks,
+        Map<GitHubRepository, String> heads, AuthorDiscoveryListener listener) throws GitHubStatsException
+    {
+        this.scanExecutor.execute(repositories, (repository, uri) -> getRepository(uri, repository),
+            (repository, gitRepository) -> {
+                String watermark = watermarks.get(repository);
+                // The full history is read from the commit activity index, which is shared with the commit statistics
+                return watermark == null ? this.activityIndex.getActivity(repository, gitRepository, null)
+                    : this.repositoryScanner.scan(repository, gitRepository, watermark);
+            },
+            (repository, scanResult) -> {
+                listener.onAuthorsDiscovered(repository, scanResult.getAuthors());
+                if (scanResult.getHead() != null) {
+                    heads.put(repository, scanResult.getHead());
+                }
+            });
+    }
+
     @Override
     public List<String> importAuthor(String authorId, String authorEmail, Collection<GitHubRepository> repositories,
         boolean overwrite) throws GitHubStatsException
     {
-        List<String> importedUsers = new ArrayList<>();
-        BaseObject authorObject = importAuthorInternal(authorId, authorEmail, repositories, overwrite);
-        if (authorObject != null) {
-            String authorAsString = String.format("%s <%s>", authorId, authorEmail);
-            importedUsers.add(authorAsString);
-        }
-        return importedUsers;
+        checkAuthorPagesNotBeingDeleted();
+        DocumentSaveBatch batch =
+            new DocumentSaveBatch(getXWikiContext(), null, 1, this.observationManager, this.logger);
+        importAuthorInternal(authorId, authorEmail, repositories, overwrite, batch);
+        // Authors whose page is already up to date aren't listed
+        return batch.getSaved();
     }
 
     private BaseObject importAuthorInternal(String authorId, String authorEmail,
         Collection<GitHubRepository> repositories, boolean overwrite) throws GitHubStatsException
+    {
+        return importAuthorInternal(authorId, authorEmail, repositories, overwrite,
+            new DocumentSaveBatch(getXWikiContext(), null, 1, this.observationManager, this.logger));
+    }
+
+    private BaseObject importAuthorInternal(String authorId, String authorEmail,
+        Collection<GitHubRepository> repositories, boolean overwrite, DocumentSaveBatch batch)
+        throws GitHubStatsException
     {
         BaseObject authorObject = null;
 
@@ -167,21 +400,39 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
         // Create a page based on the name + email (for unicity) and fill it with basic data
         try {
             // Get author document or create a new one if it doesn't exist
-            XWikiDocument authorDocument = getAuthorDocument(authorId, authorEmail);
+            XWikiDocument authorDocument = getAuthorDocument(authorId, authorEmail, batch);
             if (authorDocument.isNew() || overwrite) {
-                authorDocument.setTitle(String.format("Author [%s]", authorAsString));
-                authorDocument.setParentReference(PARENT);
-                authorDocument.setHidden(true);
+                // Only save when the page doesn't match the imported data already, to not create useless versions
+                boolean modified = authorDocument.isNew();
+                String title = String.format("Author [%s]", authorAsString);
+                if (!title.equals(authorDocument.getTitle())) {
+                    authorDocument.setTitle(title);
+                    modified = true;
+                }
+                if (!PARENT.equals(authorDocument.getRelativeParentReference())) {
+                    authorDocument.setParentReference(PARENT);
+                    modified = true;
+                }
+                if (!Boolean.TRUE.equals(authorDocument.isHidden())) {
+                    authorDocument.setHidden(true);
+                    modified = true;
+                }
                 // If there's an existing AuthorClass xobject then reuse it, otherwise create it
-                authorObject = createAuthorClass(authorDocument);
-                authorObject.setStringValue("id", authorId);
-                authorObject.setStringValue("email", authorEmail);
-                // Merge AuthorRepositoryClass xobjects by removing all existing objects and adding new ones
-                authorDocument.removeXObjects(AUTHOR_REPOSITORY_CLASS);
                 XWikiContext xcontext = getXWikiContext();
-                addAuthorRepositoryObjects(authorDocument, repositories, xcontext);
-                // Save modifications
-                xcontext.getWiki().saveDocument(authorDocument, "Imported author from Git", true, xcontext);
+                authorObject = authorDocument.getXObject(AUTHOR_CLASS, false, xcontext);
+                if (authorObject == null) {
+                    authorObject = createAuthorClass(authorDocument);
+                    modified = true;
+                }
+                modified |= setStringValue(authorObject, "id", authorId);
+                modified |= setStringValue(authorObject, "email", authorEmail);
+                // Update the AuthorRepositoryClass xobjects in place
+                modified |= setAuthorRepositoryObjects(authorDocument, repositories, xcontext);
+                modified |= updateRepositorySummary(authorDocument);
+                if (modified) {
+                    // Save modifications
+                    batch.save(authorDocument, "Imported author from Git", authorAsString);
+                }
             }
         } catch (XWikiException e) {
             throw new GitHubStatsException(String.format("Failed to create or update author document for [%s]",
@@ -194,43 +445,167 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
     @Override
     public List<String> importAllAuthors(boolean overwrite) throws GitHubStatsException
     {
-        List<String> importedUsers = new ArrayList<>();
-        Map<Author, Set<GitHubRepository>> authors = findAllAuthors();
-        for (Map.Entry<Author, Set<GitHubRepository>> entry : authors.entrySet()) {
-            Author author = entry.getKey();
-            Set<GitHubRepository> repositories = entry.getValue();
-            importedUsers.addAll(
-                importAuthor(author.getId(), author.getEmail(), repositories, overwrite));
+        checkAuthorPagesNotBeingDeleted();
+        long startTime = System.currentTimeMillis();
+        String wiki = getXWikiContext().getWikiId();
+        // When overwriting, all author data is reset and thus the full history needs to be walked again. Otherwise only
+        // walk the commits added since the last import and merge the found authors with the existing ones.
+        Map<GitHubRepository, String> watermarks =
+            overwrite ? Collections.emptyMap() : this.watermarkStore.getWatermarks(wiki);
+        Map<GitHubRepository, String> heads = new HashMap<>();
+        // The author pages are saved in groups, each group in a single transaction.
+        DocumentSaveBatch batch = new DocumentSaveBatch(getXWikiContext(), this.hibernateStoreProvider.get(),
+            this.configuration.getImportBatchSize(), this.observationManager, this.logger);
+        Map<GitHubRepository, String> repositories = getAllRepositoryURLs();
+        // Save the author pages while the other repositories are still being scanned
+        AuthorImport authorImport = new AuthorImport(overwrite, repositories.keySet(), batch);
+        findAuthors(repositories, watermarks, heads, authorImport::add);
+        authorImport.finish();
+        batch.flush();
+        if (batch.getFailedCount() > 0) {
+            // Keep the watermarks so that the authors of the failed pages are found again on the next import
+            throw new GitHubStatsException(String.format("Failed to save [%d] author pages, see the logs for details",
+                batch.getFailedCount()));
+        }
+        if (isAuthorPagesDeletionStartedSince(startTime)) {
+            // Pages saved by this import may have been deleted, the next import needs to find their authors again
+            throw new GitHubStatsException("The author pages have been deleted during the import, import them again "
+                + "once the deletion is finished");
+        }
+        // Only move the watermarks once all authors have been imported so that a failed import is fully redone.
+        this.watermarkStore.setWatermarks(wiki, heads);
+        return new ArrayList<>(new LinkedHashSet<>(batch.getSaved()));
+    }
+
+    private Set<GitHubRepository> getAuthorRepositories(Author author, DocumentSaveBatch batch)
+        throws GitHubStatsException
+    {
+        try {
+            return new HashSet<>(
+                getAuthorRepositories(getAuthorDocument(author.getId(), author.getEmail(), batch)).keySet());
+        } catch (XWikiException e) {
+            throw new GitHubStatsException(String.format("Failed to get the repositories of author [%s <%s>]",
+                author.getId(), author.getEmail()), e);
+        }
+    }
+
+    private void removeAuthorRepositories(Author author, Set<GitHubRepository> repositories, DocumentSaveBatch batch)
+        throws GitHubStatsException
+    {
+        String authorAsString = String.format("%s <%s>", author.getId(), author.getEmail());
+        try {
+            XWikiDocument authorDocument = getAuthorDocument(author.getId(), author.getEmail(), batch);
+            boolean modified = false;
+            for (Map.Entry<GitHubRepository, BaseObject> entry : getAuthorRepositories(authorDocument).entrySet()) {
+                if (repositories.contains(entry.getKey())) {
+                    authorDocument.removeXObject(entry.getValue());
+                    modified = true;
+                }
+            }
+            if (modified) {
+                updateRepositorySummary(authorDocument);
+                batch.save(authorDocument, "Imported author from Git", authorAsString);
+            }
+        } catch (XWikiException e) {
+            throw new GitHubStatsException(String.format("Failed to update author document for [%s]",
+                authorAsString), e);
+        }
+    }
+
+    private void mergeAuthor(String authorId, String authorEmail, Collection<GitHubRepository> repositories,
+        DocumentSaveBatch batch) throws GitHubStatsException
+    {
+        String authorAsString = String.format("%s <%s>", authorId, authorEmail);
+        try {
+            XWikiDocument authorDocument = getAuthorDocument(authorId, authorEmail, batch);
+            // New author pages waiting to be saved already have their repositories
+            if (authorDocument.isNew() && batch.getPendingDocument(authorDocument.getDocumentReference()) == null) {
+                importAuthorInternal(authorId, authorEmail, repositories, false, batch);
+                return;
+            }
+            // Add the repositories the author wasn't known to contribute to yet
+            Set<GitHubRepository> newRepositories = new LinkedHashSet<>(repositories);
+            newRepositories.removeAll(getAuthorRepositories(authorDocument).keySet());
+            if (!newRepositories.isEmpty()) {
+                addAuthorRepositoryObjects(authorDocument, newRepositories, getXWikiContext());
+                updateRepositorySummary(authorDocument);
+                batch.save(authorDocument, "Merged author repositories from Git", authorAsString);
+            }
+        } catch (XWikiException e) {
+            throw new GitHubStatsException(String.format("Failed to merge author document for [%s]",
+                authorAsString), e);
         }
-        return importedUsers;
     }
 
     @Override
     public List<String> importAllAuthorsFromGitHub(GitHub gitHub, boolean overwrite) throws GitHubStatsException
     {
+        checkAuthorPagesNotBeingDeleted();
         List<String> updatedUsers = new ArrayList<>();
 
         // Find all authors already imported so that for each of them we look for more data on GitHub.
         try {
-            List<BaseObject> authorObjects = getAuthorObjectsForQuery(String.format(
-                ", doc.object(%s) as author", this.defaultSerializer.serialize(AUTHOR_CLASS)));
-            for (BaseObject authorObject : authorObjects) {
-                try {
-                    // Only import if there are fields not set or if overwrite is true. This is to improve performances
-                    // since we need to call GitHub for each author existing in XWiki.
-                    String avatar = authorObject.getStringValue("avatar");
-                    String name = authorObject.getStringValue("name");
-                    if (overwrite || StringUtils.isEmpty(avatar) || StringUtils.isEmpty(name)) {
-                        String userId = authorObject.getStringValue("id");
-                        String emailAddress = authorObject.getStringValue("email");
-                        updatedUsers.addAll(importAuthorFromGitHub(gitHub, userId, emailAddress, overwrite));
+            String wiki = getXWikiContext().getWikiId();
+            // Don't repeat the searches known to fail, and directly get the users already found
+            Map<String, AuthorLookup.Record> records = this.lookupStore.getRecords(wiki);
+            long ttl = TimeUnit.SECONDS.toMillis(this.configuration.getUserLookupTTL());
+            long now = System.currentTimeMillis();
+            List<AuthorRecord> authorsToImport = new ArrayList<>();
+            for (AuthorRecord authorRecord : this.authorIndex.getAuthors(wiki)) {
+                // Only import if there are fields not set or if overwrite is true. This is to improve performances
+                // since we need to call GitHub for each author existing in XWiki.
+                if (overwrite || StringUtils.isEmpty(authorRecord.getAvatar())
+                    || StringUtils.isEmpty(authorRecord.getName()))
+                {
+                    authorsToImport.add(authorRecord);
+                }
+            }
+            if (this.configuration.isCommitUserLookup()) {
+                // Only search the users that can't be found through their commits
+                authorsToImport = importAuthorsFromCommits(gitHub, authorsToImport, overwrite, updatedUsers);
+            }
+
+            List<AuthorLookup> lookups = new ArrayList<>();
+            int knownMisses = 0;
+            for (AuthorRecord authorRecord : authorsToImport) {
+                AuthorLookup lookup = new AuthorLookup(authorRecord, records, ttl, now);
+                if (lookup.isKnownMiss()) {
+                    knownMisses++;
+                } else {
+                    lookups.add(lookup);
+                }
+            }
+            if (knownMisses > 0) {
+                this.logger.info("Skipping [{}] authors that previous imports failed to locate on GitHub", knownMisses);
+            }
+
+            // Locate the users by batches, saving the authors of each batch before locating the next ones. The lookup
+            // outcomes are kept in memory and stored once at the end, even if the import fails midway.
+            Map<String, AuthorLookup.Record> newRecords = new HashMap<>();
+            try {
+                for (int start = 0; start < lookups.size(); start += GitHubUserResolver.BATCH_SIZE) {
+                    List<AuthorLookup> batch =
+                        lookups.subList(start, Math.min(start + GitHubUserResolver.BATCH_SIZE, lookups.size()));
+                    locateUsersInGitHub(gitHub, batch);
+                    for (AuthorLookup lookup : batch) {
+                        newRecords.putAll(lookup.getNewRecords());
+                        if (lookup.getUser() != null) {
+                            try {
+                                // Only load the author pages that are going to be updated
+                                List<BaseObject> matchingAuthorObjects =
+                                    getAuthorObjectsById(lookup.getAuthor().getId());
+                                updatedUsers.addAll(
+                                    importAuthorFromGitHub(lookup.getUser(), matchingAuthorObjects, overwrite));
+                            } catch (Exception e) {
+                                // Failed to import the user, skip it and continue...
+                                this.logger.warn("Failed to import author [{}] from GitHub. Reason: [{}]",
+                                    lookup.getAuthor().getId(), ExceptionUtils.getRootCauseMessage(e));
+                            }
+                        }
                     }
-                } catch (GitHubStatsException e) {
-                    // Failed to import the user. This is usually because the user doesn't exist but the GitHub API
-                    // we're using doesn't let us make the difference between a non existent users and a failure to
-                    // retrieve the user's data...
-                    // Thus we simply skip this user and continue...
                 }
+            } finally {
+                this.lookupStore.addRecords(wiki, newRecords);
             }
         } catch (Exception e) {
             throw new GitHubStatsException("Failed to import all authors data from GitHub", e);
@@ -239,7 +614,148 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
         return updatedUsers;
     }
 
-    private List<String> importAuthorFromGitHub(GHUser user, List<BaseObject> authorToUpdateObjects,
+    /**
+     * Import the GitHub data of the authors whose GitHub user is associated with their commits, by looking up a single
+     * representative commit per author (in the local clone of one of the repositories the author has contributed to).
+     *
+     * @return the authors whose GitHub user hasn't been found this way
+     */
+    private List<AuthorRecord> importAuthorsFromCommits(GitHub gitHub, List<AuthorRecord> authors, boolean overwrite,
+        List<String> updatedUsers) throws IOException
+    {
+        Map<Author, AuthorRecord> pendingAuthors = new LinkedHashMap<>();
+        Set<GitHubRepository> repositories = new LinkedHashSet<>();
+        for (AuthorRecord author : authors) {
+            pendingAuthors.putIfAbsent(new Author(author.getId(), author.getEmail()), author);
+            repositories.addAll(author.getRepositories().keySet());
+        }
+
+        List<AuthorRecord> unresolvedAuthors = new ArrayList<>();
+        for (GitHubRepository repository : repositories) {
+            // Don't clone the repositories just for that
+            Repository localRepository = this.repositoryStore.getLocalRepository(repository);
+            if (pendingAuthors.isEmpty() || localRepository == null) {
+                continue;
+            }
+            Map<Author, String> representativeCommits =
+                this.activityIndex.getRepresentativeCommits(repository, localRepository);
+            Map<Author, String> commits = new HashMap<>();
+            for (Map.Entry<Author, String> entry : representativeCommits.entrySet()) {
+                if (pendingAuthors.containsKey(entry.getKey())) {
+                    commits.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (commits.isEmpty()) {
+                continue;
+            }
+
+            // GitHub associates the commits with users through the commit email, so the other commits of an author
+            // wouldn't be associated either
+            Map<Author, GitHubUserProfile> users = locateCommitAuthorsInGitHub(gitHub, repository, commits);
+            for (Author author : commits.keySet()) {
+                AuthorRecord authorRecord = pendingAuthors.remove(author);
+                GitHubUserProfile user = users.get(author);
+                if (user == null) {
+                    unresolvedAuthors.add(authorRecord);
+                    continue;
+                }
+                try {
+                    List<BaseObject> matchingAuthorObjects = getAuthorObjectsById(authorRecord.getId());
+                    updatedUsers.addAll(importAuthorFromGitHub(user, matchingAuthorObjects, overwrite));
+                } catch (Exception e) {
+                    // Failed to import the user, skip it and continue...
+                    this.logger.warn("Failed to import author [{}] from GitHub. Reason: [{}]", authorRecord.getId(),
+                        ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        }
+
+        // Including the authors without any commit in the local clones
+        unresolvedAuthors.addAll(pendingAuthors.values());
+        return unresolvedAuthors;
+    }
+
+    private Map<Author, GitHubUserProfile> locateCommitAuthorsInGitHub(GitHub gitHub, GitHubRepository repository,
+        Map<Author, String> commits) throws IOException
+    {
+        if (this.userResolver.canResolve(gitHub)) {
+            try {
+                return this.userResolver.resolveCommitAuthors(gitHub, repository, commits);
+            } catch (IOException e) {
+                // The scheduler already waited for the rate limit reset, don't hide that it's still reached
+                if (this.gitHubScheduler.isRateLimitError(e)) {
+                    throw e;
+                }
+                this.logger.warn("Failed to get the commit authors of repository [{}/{}] with the GitHub GraphQL API, "
+                    + "using the REST API instead. Reason: [{}]", repository.getOrganizationId(),
+                    repository.getRepositoryId(), ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+
+        Map<Author, GitHubUserProfile> users = new HashMap<>();
+        GHRepository ghRepository;
+        try {
+            ghRepository = this.gitHubScheduler.execute(gitHub, GitHubRequestScheduler.Budget.CORE,
+                () -> gitHub.getRepository(
+                    String.format("%s/%s", repository.getOrganizationId(), repository.getRepositoryId())));
+        } catch (IOException e) {
+            if (this.gitHubScheduler.isRateLimitError(e)) {
+                throw e;
+            }
+            this.logger.warn("Failed to get repository [{}/{}] from GitHub. Reason: [{}]",
+                repository.getOrganizationId(), repository.getRepositoryId(), ExceptionUtils.getRootCauseMessage(e));
+            return users;
+        }
+        for (Map.Entry<Author, String> entry : commits.entrySet()) {
+            try {
+                // Null when the commit email isn't associated with a GitHub user. This costs 2 core API calls per
+                // author: the commit only holds the user's login, and getAuthor() then fetches the full user, which
+                // has the name and company needed anyway (so fetchUser() doesn't make a third call).
+                GHUser user = this.gitHubScheduler.execute(gitHub, GitHubRequestScheduler.Budget.CORE,
+                    () -> ghRepository.getCommit(entry.getValue()).getAuthor());
+                if (user != null) {
+                    users.put(entry.getKey(), new GitHubUserProfile(fetchUser(gitHub, user)));
+                }
+            } catch (IOException e) {
+                if (this.gitHubScheduler.isRateLimitError(e)) {
+                    throw e;
+                }
+                // For example a commit that hasn't been pushed
+                this.logger.debug("Failed to get the author of commit [{}] from GitHub. Reason: [{}]",
+                    entry.getValue(), ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Locate the GitHub users matching the passed authors, with a single GraphQL query when the client allows it and
+     * otherwise with the search API (which is rate limited to 30 calls per minute and takes up to 3 calls per author).
+     * The users that can't be located (usually because they don't exist, but the search API doesn't let us make the
+     * difference with a failure to retrieve the user's data) are skipped.
+     */
+    private void locateUsersInGitHub(GitHub gitHub, List<AuthorLookup> lookups) throws IOException
+    {
+        if (this.userResolver.canResolve(gitHub)) {
+            try {
+                this.userResolver.resolve(gitHub, lookups);
+                return;
+            } catch (IOException e) {
+                // The scheduler already waited for the rate limit reset, don't hide that it's still reached
+                if (this.gitHubScheduler.isRateLimitError(e)) {
+                    throw e;
+                }
+                this.logger.warn("Failed to locate users with the GitHub GraphQL API, using the search API instead. "
+                    + "Reason: [{}]", ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+
+        for (AuthorLookup lookup : lookups) {
+            lookup.setUser(locateUserInGitHub(gitHub, lookup));
+        }
+    }
+
+    private List<String> importAuthorFromGitHub(GitHubUserProfile user, List<BaseObject> authorToUpdateObjects,
         boolean overwrite) throws GitHubStatsException
     {
         List<String> importedUsers = new ArrayList<>();
@@ -254,15 +770,18 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
                 }
                 String currentAvatar = authorToUpdateObject.getStringValue("avatar");
                 if (StringUtils.isEmpty(currentAvatar) || overwrite) {
-                    authorToUpdateObject.setStringValue("avatar", user.getAvatarUrl());
+                    authorToUpdateObject.setStringValue("avatar", user.getAvatarURL());
                     modified = true;
                 }
                 String currentProfileURL = authorToUpdateObject.getStringValue("profileurl");
-                if (StringUtils.isEmpty(currentProfileURL) || overwrite) {
-                    // TODO: There's currently no way to get the User HTML URL,
-                    // See https://github.com/kohsuke/github-api/issues/52
-                    // matchingAuthorObject.setStringValue("profileurl", user.get...);
-                    // modified = true;
+                // Only known when the user has been located with the GraphQL API
+                if ((StringUtils.isEmpty(currentProfileURL) || overwrite) && user.getProfileURL() != null) {
+                    authorToUpdateObject.setStringValue("profileurl", user.getProfileURL());
+                    modified = true;
+                } else if (authorToUpdateObject.get("profileurl") == null) {
+                    // Always set the property so that the page has the same properties whatever the API used
+                    authorToUpdateObject.setStringValue("profileurl", "");
+                    modified = true;
                 }
                 String currentCompany = authorToUpdateObject.getStringValue("company");
                 if (StringUtils.isEmpty(currentCompany) || overwrite) {
@@ -290,7 +809,11 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
 
         // Load the XWiki page corresponding to that user and fill the data.
         try {
-            GHUser matchinguser = locateUserInGitHub(gitHub, authorId, emailAddress);
+            // Make all the searches, since the import has been explicitly requested, but record their outcomes
+            AuthorLookup lookup = new AuthorLookup(new AuthorRecord(null, authorId, emailAddress, null, null, null,
+                null, Collections.<GitHubRepository, Boolean>emptyMap()));
+            GitHubUserProfile matchinguser = locateUserInGitHub(gitHub, lookup);
+            this.lookupStore.addRecords(getXWikiContext().getWikiId(), lookup.getNewRecords());
             if (matchinguser != null) {
                 result = importAuthorFromGitHub(matchinguser, authorToUpdateObjects, overwrite);
             }
@@ -301,42 +824,70 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
         return result;
     }
 
-    private GHUser locateUserInGitHub(GitHub gitHub, String authorId, String emailAddress)
+    private GitHubUserProfile locateUserInGitHub(GitHub gitHub, AuthorLookup lookup) throws IOException
     {
         try {
-            // Search for a user with the passed login
+            GHUser user = null;
+            if (lookup.getKnownLogin() != null) {
+                // Found by a previous search
+                user = this.gitHubScheduler.execute(gitHub, GitHubRequestScheduler.Budget.CORE,
+                    () -> gitHub.getUser(lookup.getKnownLogin()));
+            }
+
+            // Search for a user with the passed login, then with a matching email address, then with a full name
+            // matching the passed login.
             // Note: We don't use "gitHub.getUser(authorId)" because if the authorId is a simple one (like "Gabriela")
             // then it's very likely that it'll return the wrong user. Doing a search is likely to return more than one
             // user and thus we'll search with the email address and full name.
-            PagedSearchIterable<GHUser> matchingUsers =
-                gitHub.searchUsers().q(escapeQueryTerm(authorId)).type("user").in("login").list();
-            if (matchingUsers.getTotalCount() == 1) {
-                return matchingUsers.iterator().next();
-            }
-
-            // Search for a user with a matching email address
-            matchingUsers = gitHub.searchUsers().q(escapeQueryTerm(emailAddress)).type("user").in("email").list();
-            if (matchingUsers.getTotalCount() == 1) {
-                return matchingUsers.iterator().next();
+            for (AuthorLookup.Strategy strategy : lookup.getPendingStrategies()) {
+                user = searchUniqueUser(gitHub, lookup, strategy);
+                if (user != null) {
+                    break;
+                }
             }
 
-            // Search for a user with a full name matching the passed login (since on git, sometimes users set their
-            // name as their git id).
-            matchingUsers = gitHub.searchUsers().q(escapeQueryTerm(authorId)).type("user").in("fullname").list();
-            if (matchingUsers.getTotalCount() == 1) {
-                return matchingUsers.iterator().next();
+            return user != null ? new GitHubUserProfile(fetchUser(gitHub, user)) : null;
+        } catch (IOException e) {
+            // The scheduler already waited for the rate limit reset, don't hide that it's still reached
+            if (this.gitHubScheduler.isRateLimitError(e)) {
+                throw e;
             }
-        } catch (Throwable e) {
-            // It failed to locate the user. The most likely reason is that the API rate limit has been reached.
-            // Continue so that the users for which it has worked can be saved and so that the user can reimport the
-            // rest later on.
-            this.logger.warn("Failed to locate user [{}] (email [{}]). Reason: [{}]", authorId, emailAddress,
-                ExceptionUtils.getRootCauseMessage(e));
+            this.logger.warn("Failed to locate user [{}] (email [{}]). Reason: [{}]", lookup.getAuthor().getId(),
+                lookup.getAuthor().getEmail(), ExceptionUtils.getRootCauseMessage(e));
         }
 
         return null;
     }
 
+    private GHUser searchUniqueUser(GitHub gitHub, AuthorLookup lookup, AuthorLookup.Strategy strategy)
+        throws IOException
+    {
+        return this.gitHubScheduler.execute(gitHub, GitHubRequestScheduler.Budget.SEARCH, () -> {
+            PagedSearchIterable<GHUser> matchingUsers = gitHub.searchUsers()
+                .q(escapeQueryTerm(lookup.getTerm(strategy))).type("user").in(strategy.getQualifier()).list();
+            // Reading the first result fetches the first page, which also holds the total count, so that a single
+            // request is made
+            Iterator<GHUser> iterator = matchingUsers.iterator();
+            GHUser user = iterator.hasNext() ? iterator.next() : null;
+            AuthorLookup.Outcome outcome = AuthorLookup.Outcome.fromCount(
+                user != null ? matchingUsers.getTotalCount() : 0);
+            lookup.record(strategy, outcome, user != null ? user.getLogin() : null, System.currentTimeMillis());
+            return outcome == AuthorLookup.Outcome.FOUND ? user : null;
+        });
+    }
+
+    /**
+     * The users returned by the searches and the listings only hold a summary of the user data, the rest is fetched
+     * lazily (and thus wouldn't be rate limited) when first accessed.
+     */
+    private GHUser fetchUser(GitHub gitHub, GHUser user) throws IOException
+    {
+        return this.gitHubScheduler.execute(gitHub, GitHubRequestScheduler.Budget.CORE, () -> {
+            user.getName();
+            return user;
+        });
+    }
+
     private String escapeQueryTerm(String term)
     {
         return StringUtils.prependIfMissing(StringUtils.appendIfMissing(term, "\""), "\"");
@@ -346,10 +897,10 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
     public List<String> importAuthorFromGitHub(GitHub gitHub, String authorId, String emailAddress, boolean overwrite)
         throws GitHubStatsException
     {
+        checkAuthorPagesNotBeingDeleted();
         List<BaseObject> matchingAuthorObjects;
         try {
-            matchingAuthorObjects = getAuthorObjectsForQuery(String.format(
-                "where doc.object(%s).id = '%s'", this.defaultSerializer.serialize(AUTHOR_CLASS), authorId));
+            matchingAuthorObjects = getAuthorObjectsById(authorId);
         } catch (Exception e) {
             throw new GitHubStatsException(String.format("Failed to find matching author for [%s]", authorId), e);
         }
@@ -361,18 +912,21 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
     public List<String> createAuthorFromGitHub(GitHub gitHub, String authorId, String fallbackEmail, boolean overwrite)
         throws GitHubStatsException
     {
+        checkAuthorPagesNotBeingDeleted();
         List<String> importedUsers = new ArrayList<>();
 
         // Create the page if it doesn't already exist.
         try {
-            GHUser user = gitHub.getUser(authorId);
+            GHUser user = this.gitHubScheduler.execute(gitHub, GitHubRequestScheduler.Budget.CORE,
+                () -> gitHub.getUser(authorId));
             String email = user.getEmail();
             if (StringUtils.isEmpty(email)) {
                 email = fallbackEmail;
             }
             BaseObject authorObject = importAuthorInternal(user.getLogin(), email, Collections.EMPTY_LIST, overwrite);
             if (authorObject != null) {
-                importedUsers.addAll(importAuthorFromGitHub(user, Arrays.asList(authorObject), overwrite));
+                importedUsers.addAll(
+                    importAuthorFromGitHub(new GitHubUserProfile(user), Arrays.asList(authorObject), overwrite));
             }
         } catch (Exception e) {
             throw new GitHubStatsException("Failed to import or create author from GitHub", e);
@@ -399,27 +953,32 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
     public List<String> importCommittersFromGitHub(GitHub gitHub, GitHubRepository repository)
         throws GitHubStatsException
     {
+        checkAuthorPagesNotBeingDeleted();
         List<String> importedUsers = new ArrayList<>();
 
         // Find all collaborators for the specified repository
         XWikiContext xcontext = getXWikiContext();
         try {
-            GHRepository ghRepository = gitHub.getRepository(
-                String.format("%s/%s", repository.getOrganizationId(), repository.getRepositoryId()));
-            for (GHUser user : ghRepository.getCollaborators()) {
+            String repositoryName =
+                String.format("%s/%s", repository.getOrganizationId(), repository.getRepositoryId());
+            Collection<GHUser> collaborators = this.gitHubScheduler.execute(gitHub,
+                GitHubRequestScheduler.Budget.CORE, () -> gitHub.getRepository(repositoryName).getCollaborators());
+            for (GHUser collaborator : collaborators) {
                 // Ideally we would get the user email from GitHub and update that record. However a lot of users don't
                 // specify their email address on GitHub. Thus we use a different strategy:
                 // - Look for all users who have an id matching the GitHub user id and update them, hoping that no two
                 //   users have the same id...
                 // - If no matching author is found, create a new entry
-                List<BaseObject> matchingAuthorObjects = getAuthorObjectsForQuery(String.format(
-                    "where doc.object(%s).id = '%s'", this.defaultSerializer.serialize(AUTHOR_CLASS), user.getLogin()));
+                List<BaseObject> matchingAuthorObjects = getAuthorObjectsById(collaborator.getLogin());
                 if (matchingAuthorObjects.isEmpty()) {
+                    // Only load the full user (one more API call) when there's an author to fill
+                    GHUser user = fetchUser(gitHub, collaborator);
                     // Create new author entry
                     BaseObject authorObject = importAuthorInternal(
                         user.getLogin(), user.getEmail(), Collections.singleton(repository), false);
                     // Fill it with author data from GitHub
-                    importedUsers.addAll(importAuthorFromGitHub(user, Collections.singletonList(authorObject), false));
+                    importedUsers.addAll(importAuthorFromGitHub(new GitHubUserProfile(user),
+                        Collections.singletonList(authorObject), false));
                 } else {
                     for (BaseObject matchingAuthorObject : matchingAuthorObjects) {
                         XWikiDocument authorDocument = matchingAuthorObject.getOwnerDocument();
@@ -449,6 +1008,7 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
                         int currentCommitterValue = foundRepositoryObject.getIntValue("committer");
                         if (currentCommitterValue != 1) {
                             foundRepositoryObject.setIntValue("committer", 1);
+                            updateRepositorySummary(authorDocument);
                             // Save modifications
                             xcontext.getWiki().saveDocument(authorDocument, "Imported committer status from GitHub",
                                 true, xcontext);
@@ -467,85 +1027,34 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
     @Override
     public List<String> linkAuthors() throws GitHubStatsException
     {
-        Set<String> modifiedUsers = new LinkedHashSet<>();
-
-        // For each author that has its user avatar field set look for similar authors and fill mutually missing fields
-        // using the following strategies:
-        // - A - find other authors with the same id (but different emails)
-        // - B - find other authors having an id matching the author name
-        // - C - find other authors having the same name
-        // - D - find other authors having the same email
-        // - E - find other authors having a full name matching the id
+        checkAuthorPagesNotBeingDeleted();
+        // Fill the missing fields of the authors similar to an author having its user avatar field set (i.e. same id,
+        // same name, same email, or id matching the name). All authors are grouped in memory and each modified page is
+        // then saved once.
         try {
-            List<String> linkedUsers = new ArrayList<>();
-            do {
-                linkedUsers.clear();
-                String authorClassReference = this.defaultSerializer.serialize(AUTHOR_CLASS);
-                // Note that the query is made to work with Oracle which treats empty strings as null.
-                List<BaseObject> fullAuthorObjects = getAuthorObjectsForQuery(String.format(
-                    ", doc.object(%s) author where (author.avatar <> '' or (author.avatar is not null and '' is null))",
-                    authorClassReference));
-                for (BaseObject fullAuthorObject : fullAuthorObjects) {
-                    String gitId = fullAuthorObject.getStringValue("id");
-                    String gitName = fullAuthorObject.getStringValue("name");
-                    String gitEmail = fullAuthorObject.getStringValue("email");
-
-                    // Strategy A
-                    if (!StringUtils.isEmpty(gitId)) {
-                        List<BaseObject> authorObjects = getAuthorObjectsForQuery(String.format(
-                            ", doc.object(%s) author where author.id = '%s' and author.email <> '%s'",
-                            authorClassReference, gitId, gitEmail));
-                        List<String> results = linkUser(fullAuthorObject, authorObjects);
-                        linkedUsers.addAll(results);
-                        modifiedUsers.addAll(results);
-                    }
-
-                    // Strategy B
-                    if (!StringUtils.isEmpty(gitName)) {
-                        List<BaseObject> authorObjects = getAuthorObjectsForQuery(String.format(
-                            "where doc.object(%s).id = '%s'", authorClassReference, gitName));
-                        List<String> results = linkUser(fullAuthorObject, authorObjects);
-                        linkedUsers.addAll(results);
-                        modifiedUsers.addAll(results);
-                    }
-
-                    // Strategy C
-                    if (!StringUtils.isEmpty(gitName)) {
-                        List<BaseObject> authorObjects  = getAuthorObjectsForQuery(String.format(
-                            ", doc.object(%s) author where author.name = '%s' and author.id <> '%s' and "
-                            + "author.email <> '%s'",
-                            authorClassReference, gitName, gitId, gitEmail));
-                        List<String> results = linkUser(fullAuthorObject, authorObjects);
-                        linkedUsers.addAll(results);
-                        modifiedUsers.addAll(results);
-                    }
-
-                    // Strategy D
-                    if (!StringUtils.isEmpty(gitEmail)) {
-                        List<BaseObject> authorObjects = getAuthorObjectsForQuery(String.format(
-                            ", doc.object(%s) author where author.email = '%s' and author.id <> '%s'",
-                            authorClassReference, gitEmail, gitId));
-                        List<String> results = linkUser(fullAuthorObject, authorObjects);
-                        linkedUsers.addAll(results);
-                        modifiedUsers.addAll(results);
-                    }
-
-                    // Strategy E
-                    if (!StringUtils.isEmpty(gitEmail)) {
-                        List<BaseObject> authorObjects = getAuthorObjectsForQuery(String.format(
-                            ", doc.object(%s) author where author.name = '%s' and author.id <> '%s'",
-                            authorClassReference, gitId, gitId));
-                        List<String> results = linkUser(fullAuthorObject, authorObjects);
-                        linkedUsers.addAll(results);
-                        modifiedUsers.addAll(results);
-                    }
+            XWikiContext xcontext = getXWikiContext();
+            List<AuthorIdentityResolver.AuthorLink> links =
+                new AuthorIdentityResolver(this.authorIndex.getAuthors(xcontext.getWikiId())).resolve();
+            DocumentSaveBatch batch = new DocumentSaveBatch(xcontext, this.hibernateStoreProvider.get(),
+                this.configuration.getImportBatchSize(), this.observationManager, this.logger);
+            for (AuthorIdentityResolver.AuthorLink link : links) {
+                XWikiDocument authorDocument = xcontext.getWiki().getDocument(link.getDocumentReference(), xcontext);
+                if (linkAuthor(authorDocument, link)) {
+                    batch.save(authorDocument, String.format("Linked author with [%s]", link.getLinkedAuthorId()),
+                        link.getDocumentReference().getName());
                 }
-            } while (!linkedUsers.isEmpty());
+            }
+            batch.flush();
+            if (batch.getFailedCount() > 0) {
+                throw new GitHubStatsException(String.format(
+                    "Failed to save [%d] linked author pages, see the logs for details", batch.getFailedCount()));
+            }
+            return new ArrayList<>(new LinkedHashSet<>(batch.getSaved()));
+        } catch (GitHubStatsException e) {
+            throw e;
         } catch (Exception e) {
             throw new GitHubStatsException("Failed to link authors", e);
         }
-
-        return new ArrayList<>(modifiedUsers);
     }
 
     @Override
@@ -555,37 +1064,24 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
         Map<Author, Map<String, ?>> authors = new HashMap<>();
 
         try {
-            // Find all authors for the passed repositories
-            List<String> whereConditions = new ArrayList<>();
-            String authorRepositoryClassReference = this.defaultSerializer.serialize(AUTHOR_REPOSITORY_CLASS);
-            for (GitHubRepository repository : repositories) {
-                whereConditions.add(String.format(
-                    "(authorRepo.organizationId = '%s' AND authorRepo.repositoryId = '%s')",
-                    repository.getOrganizationId(), repository.getRepositoryId()));
-            }
-            List<BaseObject> authorObjects = getAuthorObjectsForQuery(String.format(
-                ", doc.object(%s) authorRepo where %s", authorRepositoryClassReference,
-                StringUtils.join(whereConditions, " OR ")));
+            // Find all authors for the passed repositories, with their committer flag
+            Map<AuthorRecord, Boolean> authorRecords =
+                this.authorIndex.getAuthorsByRepositories(getXWikiContext().getWikiId(), repositories);
 
             // For each author return some author data
-            for (BaseObject authorObject : authorObjects) {
-                String id = authorObject.getStringValue("id");
-                Author author = new Author(id, authorObject.getStringValue("email"));
+            for (Map.Entry<AuthorRecord, Boolean> entry : authorRecords.entrySet()) {
+                AuthorRecord authorRecord = entry.getKey();
+                String id = authorRecord.getId();
+                Author author = new Author(id, authorRecord.getEmail());
                 Map<String, Object> authorData = new HashMap<>();
-                String name = authorObject.getStringValue("name");
+                String name = authorRecord.getName();
                 if (StringUtils.isEmpty(name)) {
                     name = id;
                 }
                 authorData.put("name", name);
-                String avatar = authorObject.getStringValue("avatar");
-                if (avatar != null) {
-                    authorData.put("avatar", avatar);
-                }
-                String company = authorObject.getStringValue("company");
-                if (company != null) {
-                    authorData.put("company", company);
-                }
-                authorData.put("committer", isCommitter(authorObject, repositories));
+                authorData.put("avatar", authorRecord.getAvatar());
+                authorData.put("company", authorRecord.getCompany());
+                authorData.put("committer", entry.getValue());
                 authors.put(author, authorData);
             }
 
@@ -597,31 +1093,6 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
         return authors;
     }
 
-    private boolean isCommitter(BaseObject authorObject, Collection<GitHubRepository> repositories)
-    {
-        boolean isCommitter = false;
-        List<BaseObject> authorRepoObjects =
-            authorObject.getOwnerDocument().getXObjects(AUTHOR_REPOSITORY_CLASS);
-        if (authorRepoObjects != null) {
-            for (BaseObject authorRepoObject : authorRepoObjects) {
-                // XObjects can be null since there can be holes, just ignore
-                if (authorRepoObject == null) {
-                    continue;
-                }
-                boolean committer = authorRepoObject.getIntValue("committer") == 1;
-                if (committer) {
-                    String organizationId = authorRepoObject.getStringValue("organizationId");
-                    String repositoryId = authorRepoObject.getStringValue("repositoryId");
-                    if (repositories.contains(new GitHubRepository(organizationId, repositoryId))) {
-                        isCommitter = true;
-                        break;
-                    }
-                }
-            }
-        }
-        return isCommitter;
-    }
-
     @Override
     public List<String> importRepositoriesFromGitHub(GitHub gitHub, String organizationId, boolean overwrite)
         throws GitHubStatsException
@@ -629,7 +1100,10 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
         List<String> importedRepositories = new ArrayList<>();
 
         try {
-            for (GHRepository repository : gitHub.getOrganization(organizationId).getRepositories().values()) {
+            Collection<GHRepository> repositories = this.gitHubScheduler.execute(gitHub,
+                GitHubRequestScheduler.Budget.CORE, () -> gitHub.getOrganization(organizationId).getRepositories()
+                    .values());
+            for (GHRepository repository : repositories) {
                 // If the repo has no commit then don't import it since gitective doesn't work with empty git repos.
                 // TODO: Remove once gitective is fixed and doesn't result in a NPE in this case...
                 if (repository.getSize() == 0) {
@@ -674,84 +1148,187 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
     @Override
     public List<String> deleteAuthors() throws GitHubStatsException
     {
-        return deleteItems(AUTHOR_CLASS, "Failed to delete some GitHub author pages");
+        try {
+            return deleteItems(AUTHOR_CLASS, "Failed to delete some GitHub author pages");
+        } finally {
+            // Some pages may have been deleted even if the deletion failed midway
+            clearAuthorStores(getXWikiContext().getWikiId());
+        }
+    }
+
+    @Override
+    public BulkDeletionStatus deleteAuthorsInBackground(boolean skipRecycleBin) throws GitHubStatsException
+    {
+        String wiki = getXWikiContext().getWikiId();
+        // The stores are cleared once all the pages have been processed, since the author imports are refused until
+        // then, and only if the deletion has started (it's not started when another one is already running)
+        return this.bulkDeleter.start(AUTHOR_PAGES, AUTHOR_CLASS, skipRecycleBin, () -> clearAuthorStores(wiki));
+    }
+
+    @Override
+    public BulkDeletionStatus deleteRepositoriesInBackground(boolean skipRecycleBin) throws GitHubStatsException
+    {
+        return this.bulkDeleter.start("repositories", REPOSITORY_CLASS, skipRecycleBin);
+    }
+
+    @Override
+    public BulkDeletionStatus getDeletionStatus()
+    {
+        return this.bulkDeleter.getStatus(getXWikiContext().getWikiId());
     }
 
     @Override
     public Map<GitHubRepository, String> getRepositoryURLs(String... repositoriesAsStrings)
         throws GitHubStatsException
     {
-        Map<GitHubRepository, String> result = new HashMap<>();
-        Map<GitHubRepository, String> allRepos = getAllRepositoryURLs();
-        // For each defined repo, verify it matches the passed string. If it doesn't remove it from the list!
-        for (Map.Entry<GitHubRepository, String> repoEntry : allRepos.entrySet()) {
-            GitHubRepository repository = repoEntry.getKey();
-            for (String repositoryAsString : repositoriesAsStrings) {
-                String[] tokens = StringUtils.split(repositoryAsString, '/');
-                if (("*".equals(tokens[1]) && repository.getOrganizationId().equals(tokens[0]))
-                    || (repository.getOrganizationId().equals(tokens[0])
-                        && repository.getRepositoryId().equals(tokens[1])))
-                {
-                    result.put(repository, repoEntry.getValue());
-                }
-            }
+        try {
+            Map<GitHubRepository, String> repositories =
+                this.repositoryRegistry.getRepositories(getXWikiContext().getWikiId(), repositoriesAsStrings);
+            this.refreshScheduler.register(repositories);
+            return repositories;
+        } catch (QueryException e) {
+            throw new GitHubStatsException("Failed to locate GitHub repositories objects in the wiki", e);
         }
-        return result;
     }
 
     private Map<GitHubRepository, String> getAllRepositoryURLs() throws GitHubStatsException
     {
         // Find all Git repositories defined in the current wiki.
-        List<Object[]> results;
         try {
-            Query query = this.queryManager.createQuery(
-                String.format("select distinct repo.organization, repo.id, repo.giturl from Document doc, "
-                    + "doc.object(%s) as repo", this.defaultSerializer.serialize(REPOSITORY_CLASS)), Query.XWQL);
-            results = query.execute();
+            Map<GitHubRepository, String> repositories =
+                this.repositoryRegistry.getRepositories(getXWikiContext().getWikiId());
+            this.refreshScheduler.register(repositories);
+            return repositories;
         } catch (QueryException e) {
             throw new GitHubStatsException("Failed to locate GitHub repositories objects in the wiki", e);
         }
-
-        // For each repository found, find all authors that have ever contributed code.
-        Map<GitHubRepository, String> repositories = new HashMap<>();
-        for (Object[] repoData : results) {
-            String organizationId = (String) repoData[0];
-            String repositoryId = (String) repoData[1];
-            String gitURL = (String) repoData[2];
-            repositories.put(new GitHubRepository(organizationId, repositoryId), gitURL);
-        }
-
-        return repositories;
     }
 
     @Override
     public Map<GitHubRepository, String> getRepositoryURLs(List<GitHubRepository> repositories)
         throws GitHubStatsException
     {
-        Map<GitHubRepository, String> result = new HashMap<>();
-        Map<GitHubRepository, String> repos = getAllRepositoryURLs();
-        for (Map.Entry<GitHubRepository, String> repoEntry : repos.entrySet()) {
-            GitHubRepository gitHubRepository = repoEntry.getKey();
-            if (repositories.contains(gitHubRepository)) {
-                result.put(gitHubRepository, repoEntry.getValue());
-            }
+        try {
+            Map<GitHubRepository, String> result =
+                this.repositoryRegistry.getRepositories(getXWikiContext().getWikiId(), repositories);
+            this.refreshScheduler.register(result);
+            return result;
+        } catch (QueryException e) {
+            throw new GitHubStatsException("Failed to locate GitHub repositories objects in the wiki", e);
         }
-        return result;
     }
 
     @Override
     public List<Repository> getRepositories(Map<GitHubRepository, String> repositories)
     {
+        this.refreshScheduler.markUsed(repositories);
         List<Repository> result = new ArrayList<>();
         for (Map.Entry<GitHubRepository, String> repoEntry : repositories.entrySet()) {
-            result.add(getRepository(repoEntry.getValue(), repoEntry.getKey()));
+            GitHubRepository repository = repoEntry.getKey();
+            // Skip the repositories that failed recently rather than waiting for them to fail again
+            if (this.failureRegistry.isAvailable(repository)) {
+                try {
+                    result.add(getDisplayedRepository(repoEntry.getValue(), repository));
+                    this.failureRegistry.recordSuccess(repository);
+                } catch (Exception e) {
+                    RepositoryFailure failure = this.failureRegistry.recordFailure(repository, e);
+                    this.logger.warn("Failed to get repository [{}/{}], skipping it until [{}]. Reason: [{}]",
+                        repository.getOrganizationId(), repository.getRepositoryId(), failure.getRetryDate(),
+                        failure.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<RepositoryFailure> getRepositoryFailures()
+    {
+        return this.failureRegistry.getFailures();
+    }
+
+    @Override
+    public void clearRepositoryFailures()
+    {
+        this.failureRegistry.clear();
+    }
+
+    @Override
+    public List<AuthorActivity> getAuthorActivities(int since, Map<GitHubRepository, String> repositories)
+        throws GitHubStatsException
+    {
+        Date sinceDate = null;
+        if (since > 0) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.add(Calendar.DAY_OF_YEAR, -since);
+            sinceDate = calendar.getTime();
         }
+        Date finalSinceDate = sinceDate;
+
+        this.refreshScheduler.markUsed(repositories);
+        Map<Author, AuthorActivity> activities = new HashMap<>();
+        RepositoryResultHandler<RepositoryScanResult> handler = (repository, scanResult) -> {
+            for (AuthorActivity repositoryActivity : scanResult.getActivities().values()) {
+                // Don't modify the repository activity since it's shared
+                AuthorActivity activity = activities.get(repositoryActivity.getAuthor());
+                if (activity == null) {
+                    activity = new AuthorActivity(repositoryActivity.getAuthor());
+                    activities.put(repositoryActivity.getAuthor(), activity);
+                }
+                activity.merge(repositoryActivity);
+            }
+        };
+
+        Map<GitHubRepository, String> remoteRepositories = repositories;
+        if (this.refreshScheduler.isEnabled()) {
+            // The local clones are kept up to date in the background: read them from the current thread rather than
+            // waiting behind the imports for the scan threads and the host connections. Only the repositories that
+            // haven't been cloned yet are fetched.
+            remoteRepositories = new HashMap<>();
+            for (Map.Entry<GitHubRepository, String> entry : repositories.entrySet()) {
+                Repository localRepository = this.repositoryStore.getLocalRepository(entry.getKey());
+                if (localRepository == null) {
+                    remoteRepositories.put(entry.getKey(), entry.getValue());
+                } else {
+                    getLocalActivity(entry.getKey(), localRepository, finalSinceDate, handler);
+                }
+            }
+        }
+        this.scanExecutor.execute(remoteRepositories, (repository, uri) -> getRepository(uri, repository),
+            (repository, gitRepository) -> this.activityIndex.getActivity(repository, gitRepository, finalSinceDate),
+            handler);
+
+        List<AuthorActivity> result = new ArrayList<>(activities.values());
+        // Most active authors first
+        Collections.sort(result, (a1, a2) -> Integer.compare(a2.getCount(), a1.getCount()));
         return result;
     }
 
     @Override
     public Map<String, Map<String, Object>> aggregateCommitsPerAuthor(UserCommitActivity[] userCommitActivity,
         Map<Author, Map<String, Object>> authors)
+    {
+        Map<Author, Integer> commitCounts = new LinkedHashMap<>();
+        for (UserCommitActivity userCommit : userCommitActivity) {
+            commitCounts.merge(new Author(userCommit.getName(), userCommit.getEmail()), userCommit.getCount(),
+                Integer::sum);
+        }
+        return aggregateCommitsPerAuthor(commitCounts, authors);
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> aggregateCommitsPerAuthor(Collection<AuthorActivity> authorActivities,
+        Map<Author, Map<String, Object>> authors)
+    {
+        Map<Author, Integer> commitCounts = new LinkedHashMap<>();
+        for (AuthorActivity activity : authorActivities) {
+            commitCounts.merge(activity.getAuthor(), activity.getCount(), Integer::sum);
+        }
+        return aggregateCommitsPerAuthor(commitCounts, authors);
+    }
+
+    private Map<String, Map<String, Object>> aggregateCommitsPerAuthor(Map<Author, Integer> commitCounts,
+        Map<Author, Map<String, Object>> authors)
     {
         if (authors == null) {
             return Collections.emptyMap();
@@ -760,8 +1337,8 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
         Map<String, Map<String, Object>> result = new HashMap<>();
 
         Map<String, Set<Author>> authorsByName = extractAuthorsByName(authors);
-        for (UserCommitActivity userCommit : userCommitActivity) {
-            Author author = new Author(userCommit.getName(), userCommit.getEmail());
+        for (Map.Entry<Author, Integer> commitCount : commitCounts.entrySet()) {
+            Author author = commitCount.getKey();
             Map<String, Object> authorData = authors.get(author);
             if (authorData == null) {
                 // If we don't know this author, we skip it
@@ -769,7 +1346,7 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
             }
             String authorName = (String) authorData.get("name");
             if (StringUtils.isEmpty(authorName)) {
-                authorName = userCommit.getName();
+                authorName = author.getId();
             }
             // Create a result entry if none exist for the name already
             Map<String, Object> authorResult = result.get(authorName);
@@ -806,7 +1383,7 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
             if (counter == null) {
                 counter = 0;
             }
-            counter += userCommit.getCount();
+            counter += commitCount.getValue();
             authorResult.put("count", counter);
         }
 
@@ -878,14 +1455,41 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
         return authorsByEmail;
     }
 
+    private void clearAuthorStores(String wiki)
+    {
+        // The authors need to be found again from the full history of the repositories, and located again on GitHub,
+        // on the next import
+        this.watermarkStore.clear(wiki);
+        this.lookupStore.clear(wiki);
+    }
+
+    /**
+     * The author pages that are being deleted in the background are deleted whatever their version when the deletion
+     * reaches them, and the stores of the wiki are cleared once the deletion is finished, so importing authors in the
+     * meantime would lose the imported data.
+     */
+    private void checkAuthorPagesNotBeingDeleted() throws GitHubStatsException
+    {
+        String wiki = getXWikiContext().getWikiId();
+        if (this.bulkDeleter.isRunning(wiki, AUTHOR_PAGES)) {
+            throw new GitHubStatsException(String.format("The author pages of wiki [%s] are being deleted, wait for "
+                + "the deletion to finish before importing authors", wiki));
+        }
+    }
+
+    private boolean isAuthorPagesDeletionStartedSince(long time)
+    {
+        BulkDeletionStatus status = this.bulkDeleter.getStatus(getXWikiContext().getWikiId());
+        return status != null && AUTHOR_PAGES.equals(status.getType()) && status.getStartDate().getTime() >= time;
+    }
+
     private List<String> deleteItems(EntityReference xclassReference, String exceptionMessage)
         throws GitHubStatsException
     {
         List<String> deletedItems = new ArrayList<>();
         try {
-            Query query = this.queryManager.createQuery(
-                String.format("select distinct doc.space, doc.name from Document doc, doc.object(%s) as author",
-                    this.defaultSerializer.serialize(xclassReference)), Query.XWQL);
+            Query query = this.queries.createQuery(GitHubStatsQueries.DOCUMENTS_WITH_CLASS);
+            query.bindValue("className", this.queries.getClassName(xclassReference));
             List<Object[]> results = query.execute();
             XWikiContext xcontext = getXWikiContext();
             for (Object[] documentData : results) {
@@ -902,48 +1506,38 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
         return deletedItems;
     }
 
-    private List<String> linkUser(BaseObject fullAuthorObject, List<BaseObject> authorObjects)
-        throws XWikiException
+    private boolean linkAuthor(XWikiDocument authorDocument, AuthorIdentityResolver.AuthorLink link)
     {
-        List<String> linkedUsers = new ArrayList<>();
-
-        XWikiContext xcontext = getXWikiContext();
-        for (BaseObject authorObject : authorObjects) {
-            boolean modified = false;
-            modified = modified || setField("avatar", fullAuthorObject, authorObject);
-            modified = modified || setField("name", fullAuthorObject, authorObject);
-            modified = modified || setField("profileurl", fullAuthorObject, authorObject);
-            modified = modified || setField("company", fullAuthorObject, authorObject);
-            // Also set the committer flag on repos
-            Map<GitHubRepository, BaseObject> fullRepos = getAuthorRepositories(fullAuthorObject);
-            Map<GitHubRepository, BaseObject> repos = getAuthorRepositories(authorObject);
-            for (Map.Entry<GitHubRepository, BaseObject> repoEntry : repos.entrySet()) {
-                // If this repo is in fullRepos and the fullAuthor is a committer then set it!
-                BaseObject fullRepoObject = fullRepos.get(repoEntry.getKey());
-                if (fullRepoObject != null) {
-                    boolean isCommitter = fullRepoObject.getIntValue("committer") == 1;
-                    if (isCommitter && repoEntry.getValue().getIntValue("committer") != 1) {
-                        repoEntry.getValue().setIntValue("committer", 1);
-                        modified = true;
-                    }
+        boolean modified = false;
+        BaseObject authorObject = authorDocument.getXObject(AUTHOR_CLASS);
+        if (authorObject != null) {
+            for (Map.Entry<String, String> field : link.getFields().entrySet()) {
+                // The page may have been modified since the author index was read
+                if (StringUtils.isEmpty(authorObject.getStringValue(field.getKey()))) {
+                    authorObject.setStringValue(field.getKey(), field.getValue());
+                    modified = true;
                 }
             }
-            if (modified) {
-                String fullId = fullAuthorObject.getStringValue("id");
-                // Save modifications
-                xcontext.getWiki().saveDocument(authorObject.getOwnerDocument(),
-                    String.format("Linked author with [%s]", fullId), true, xcontext);
-                linkedUsers.add(authorObject.getDocumentReference().getName());
+        }
+        // Also set the committer flag on repos
+        Map<GitHubRepository, BaseObject> repos = getAuthorRepositories(authorDocument);
+        for (GitHubRepository repository : link.getCommitterRepositories()) {
+            BaseObject repoObject = repos.get(repository);
+            if (repoObject != null && repoObject.getIntValue("committer") != 1) {
+                repoObject.setIntValue("committer", 1);
+                modified = true;
             }
         }
-
-        return linkedUsers;
+        if (modified) {
+            updateRepositorySummary(authorDocument);
+        }
+        return modified;
     }
 
-    private Map<GitHubRepository, BaseObject> getAuthorRepositories(BaseObject authorObject)
+    private Map<GitHubRepository, BaseObject> getAuthorRepositories(XWikiDocument authorDocument)
     {
         Map<GitHubRepository, BaseObject> repos = new HashMap<>();
-        List<BaseObject> repoObjects = authorObject.getOwnerDocument().getXObjects(AUTHOR_REPOSITORY_CLASS);
+        List<BaseObject> repoObjects = authorDocument.getXObjects(AUTHOR_REPOSITORY_CLASS);
         if (repoObjects != null) {
             for (BaseObject repoObject : repoObjects) {
                 if (repoObject == null) {
@@ -957,45 +1551,36 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
         return repos;
     }
 
-    private boolean setField(String fieldName, BaseObject source, BaseObject target)
+    private List<BaseObject> getAuthorObjectsById(String authorId) throws QueryException, XWikiException
     {
-        boolean modified = false;
-        String fullValue = source.getStringValue(fieldName);
-        if (!StringUtils.isEmpty(fullValue)) {
-            String value = target.getStringValue(fieldName);
-            if (StringUtils.isEmpty(value)) {
-                target.setStringValue(fieldName, fullValue);
-                modified = true;
-            }
-        }
-        return modified;
+        return getAuthorObjects(this.authorIndex.getAuthorsById(getXWikiContext().getWikiId(), authorId));
     }
 
-    private List<BaseObject> getAuthorObjectsForQuery(String xwqlWhere) throws QueryException, XWikiException
+    private List<BaseObject> getAuthorObjects(Collection<AuthorRecord> authors) throws XWikiException
     {
+        // The same author can be found several times
+        Set<DocumentReference> references = new LinkedHashSet<>();
+        for (AuthorRecord author : authors) {
+            references.add(author.getDocumentReference());
+        }
         List<BaseObject> objects = new ArrayList<>();
-        Query query = this.queryManager.createQuery(String.format(
-            "select distinct doc.space, doc.name from Document doc %s", xwqlWhere), Query.XWQL);
-        List<Object[]> results = query.execute();
         XWikiContext xcontext = getXWikiContext();
-        for (Object[] documentData : results) {
-            EntityReference relativeReference = new EntityReference((String) documentData[1], EntityType.DOCUMENT,
-                new EntityReference((String) documentData[0], EntityType.SPACE));
-            XWikiDocument authorDocument = xcontext.getWiki().getDocument(relativeReference, xcontext);
-            BaseObject authorObject = authorDocument.getXObject(AUTHOR_CLASS, false, xcontext);
-            objects.add(authorObject);
+        for (DocumentReference reference : references) {
+            XWikiDocument authorDocument = xcontext.getWiki().getDocument(reference, xcontext);
+            objects.add(authorDocument.getXObject(AUTHOR_CLASS, false, xcontext));
         }
         return objects;
     }
 
-    private XWikiDocument getAuthorDocument(String name, String email) throws XWikiException
+    private XWikiDocument getAuthorDocument(String name, String email, DocumentSaveBatch batch) throws XWikiException
     {
-        String authorAsString = String.format("%s <%s>", name, email);
         XWikiContext xcontext = getXWikiContext();
-        EntityReference authorReference = new EntityReference(authorAsString, EntityType.DOCUMENT,
-            new EntityReference(SPACE, EntityType.SPACE));
-        // Get author document or create a new one if it doesn't exist
-        return xcontext.getWiki().getDocument(authorReference, xcontext);
+        DocumentReference authorReference =
+            new DocumentReference(xcontext.getWikiId(), SPACE, String.format("%s <%s>", name, email));
+        // The page may have been modified already but not saved yet, otherwise get the author document or create a new
+        // one if it doesn't exist
+        XWikiDocument authorDocument = batch.getPendingDocument(authorReference);
+        return authorDocument != null ? authorDocument : xcontext.getWiki().getDocument(authorReference, xcontext);
     }
 
     private BaseObject createAuthorClass(XWikiDocument authorDocument)
@@ -1003,6 +1588,64 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
         return authorDocument.getXObject(AUTHOR_CLASS, true, getXWikiContext());
     }
 
+    /**
+     * Make the AuthorRepositoryClass xobjects of the passed document match the passed repositories, keeping the
+     * existing xobjects (and thus their committer flag) of the repositories that are still there.
+     *
+     * @return {@code true} if the document has been modified
+     */
+    private boolean setAuthorRepositoryObjects(XWikiDocument authorDocument,
+        Collection<GitHubRepository> repositories, XWikiContext xcontext) throws XWikiException
+    {
+        boolean modified = false;
+        Set<GitHubRepository> missingRepositories = new LinkedHashSet<>(repositories);
+        List<BaseObject> repoObjects = authorDocument.getXObjects(AUTHOR_REPOSITORY_CLASS);
+        if (repoObjects != null) {
+            for (BaseObject repoObject : new ArrayList<>(repoObjects)) {
+                if (repoObject == null) {
+                    continue;
+                }
+                GitHubRepository repository = new GitHubRepository(repoObject.getStringValue("organizationId"),
+                    repoObject.getStringValue("repositoryId"));
+                // Also removes the duplicate xobjects of a repository
+                if (!missingRepositories.remove(repository)) {
+                    authorDocument.removeXObject(repoObject);
+                    modified = true;
+                }
+            }
+        }
+        if (!missingRepositories.isEmpty()) {
+            addAuthorRepositoryObjects(authorDocument, missingRepositories, xcontext);
+            modified = true;
+        }
+        return modified;
+    }
+
+    /**
+     * Update the summary of the repositories stored on the AuthorClass xobject from the AuthorRepositoryClass xobjects,
+     * so that it's saved with them. The summary is also updated when the page is saved but the import needs to know if
+     * the page has been modified.
+     *
+     * @return {@code true} if the document has been modified
+     */
+    private boolean updateRepositorySummary(XWikiDocument authorDocument)
+    {
+        BaseObject authorObject = authorDocument.getXObject(AUTHOR_CLASS);
+        if (authorObject == null) {
+            return false;
+        }
+        return AuthorRepositorySummary.update(authorObject, authorDocument.getXObjects(AUTHOR_REPOSITORY_CLASS));
+    }
+
+    private boolean setStringValue(BaseObject object, String fieldName, String value)
+    {
+        if (StringUtils.equals(value, object.getStringValue(fieldName))) {
+            return false;
+        }
+        object.setStringValue(fieldName, value);
+        return true;
+    }
+
     private void addAuthorRepositoryObjects(XWikiDocument authorDocument, Collection<GitHubRepository> repositories,
         XWikiContext xcontext) throws XWikiException
     {
@@ -1015,8 +1658,39 @@ public class DefaultGitHubStatsManager implements GitHubStatsManager
 
     private Repository getRepository(String uri, GitHubRepository repository)
     {
-        return this.gitManager.getRepository(uri,
-            repository.getOrganizationId() + File.separator + repository.getRepositoryId());
+        return this.repositoryStore.getRepository(repository, uri);
+    }
+
+    private void getLocalActivity(GitHubRepository repository, Repository localRepository, Date since,
+        RepositoryResultHandler<RepositoryScanResult> handler) throws GitHubStatsException
+    {
+        if (this.failureRegistry.isAvailable(repository)) {
+            RepositoryScanResult scanResult;
+            try {
+                scanResult = this.activityIndex.getActivity(repository, localRepository, since);
+            } catch (IOException e) {
+                RepositoryFailure failure = this.failureRegistry.recordFailure(repository, e);
+                this.logger.warn("Failed to scan repository [{}/{}], skipping it until [{}]. Reason: [{}]",
+                    repository.getOrganizationId(), repository.getRepositoryId(), failure.getRetryDate(),
+                    failure.getMessage());
+                return;
+            }
+            this.failureRegistry.recordSuccess(repository);
+            handler.handle(repository, scanResult);
+        }
+    }
+
+    private Repository getDisplayedRepository(String uri, GitHubRepository repository)
+    {
+        // The repositories are kept up to date in the background so there's no need to fetch them when displaying
+        // statistics, unless they haven't been cloned yet.
+        if (this.refreshScheduler.isEnabled()) {
+            Repository localRepository = this.repositoryStore.getLocalRepository(repository);
+            if (localRepository != null) {
+                return localRepository;
+            }
+        }
+        return getRepository(uri, repository);
     }
 
     private XWikiContext getXWikiContext()
@@ -0,0 +1,231 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.ObservationManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.store.XWikiCacheStore;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+
+/**
+ * Groups document saves so that each group is committed in a single storage transaction instead of one transaction
+ * per document. If a group fails, its documents are saved again one by one so that a single bad document doesn't
+ * prevent the others from being saved. Since saving a document modifies it (version, new flag, etc.) even when the
+ * transaction is rolled back afterwards, the documents saved again are copies taken before the group was saved. Not
+ * thread safe.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class DocumentSaveBatch
+{
+    private static class PendingSave
+    {
+        private final XWikiDocument document;
+
+        private final String comment;
+
+        private final String label;
+
+        PendingSave(XWikiDocument document, String comment, String label)
+        {
+            this.document = document;
+            this.comment = comment;
+            this.label = label;
+        }
+    }
+
+    private final XWikiContext xcontext;
+
+    private final XWikiStoreInterface store;
+
+    private final int size;
+
+    private final ObservationManager observationManager;
+
+    private final Logger logger;
+
+    private final Map<DocumentReference, PendingSave> pending = new LinkedHashMap<>();
+
+    private final List<String> saved = new ArrayList<>();
+
+    private int failed;
+
+    /**
+     * @param xcontext the XWiki context
+     * @param store the store in which the documents are saved, its transactions are used when it's a Hibernate store
+     * @param size the number of documents saved in each transaction, {@code 1} to save each document directly
+     * @param observationManager used to notify that a transaction has been rolled back
+     * @param logger the logger used to report the progress and the failures
+     */
+    public DocumentSaveBatch(XWikiContext xcontext, XWikiStoreInterface store, int size,
+        ObservationManager observationManager, Logger logger)
+    {
+        this.xcontext = xcontext;
+        this.store = store;
+        this.size = Math.max(1, size);
+        this.observationManager = observationManager;
+        this.logger = logger;
+    }
+
+    /**
+     * @param reference the reference of a document
+     * @return the document if it has been modified and is waiting to be saved, {@code null} otherwise
+     */
+    public XWikiDocument getPendingDocument(DocumentReference reference)
+    {
+        PendingSave pendingSave = this.pending.get(reference);
+        return pendingSave != null ? pendingSave.document : null;
+    }
+
+    /**
+     * Save the passed document with the next group of documents. When the batch size is 1, the document is saved right
+     * away and failures are reported to the caller.
+     *
+     * @param document the document to save
+     * @param comment the save comment
+     * @param label the text identifying the document in the list of saved documents
+     * @throws XWikiException if the batch size is 1 and the document cannot be saved
+     */
+    public void save(XWikiDocument document, String comment, String label) throws XWikiException
+    {
+        if (this.size == 1) {
+            this.xcontext.getWiki().saveDocument(document, comment, true, this.xcontext);
+            this.saved.add(label);
+        } else {
+            // A document modified again before being saved is only saved once, with the latest comment
+            this.pending.put(document.getDocumentReference(), new PendingSave(document, comment, label));
+            if (this.pending.size() >= this.size) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Save the documents waiting to be saved.
+     */
+    public void flush()
+    {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+        List<PendingSave> saves = new ArrayList<>(this.pending.values());
+        this.pending.clear();
+
+        if (this.store instanceof XWikiHibernateBaseStore) {
+            XWikiHibernateBaseStore hibernateStore = (XWikiHibernateBaseStore) this.store;
+            List<XWikiDocument> copies = new ArrayList<>(saves.size());
+            for (PendingSave save : saves) {
+                copies.add(save.document.clone());
+            }
+            boolean committed = false;
+            try {
+                // The saves don't start their own transaction when there's already one in the context
+                hibernateStore.beginTransaction(this.xcontext);
+                for (PendingSave save : saves) {
+                    this.xcontext.getWiki().saveDocument(save.document, save.comment, true, this.xcontext);
+                }
+                hibernateStore.endTransaction(this.xcontext, true);
+                committed = true;
+            } catch (Exception e) {
+                this.logger.warn("Failed to save [{}] documents in a single transaction, saving them one by one. "
+                    + "Reason: [{}]", saves.size(), ExceptionUtils.getRootCauseMessage(e));
+                hibernateStore.endTransaction(this.xcontext, false);
+                // The listeners have been notified of saves that didn't happen
+                this.observationManager.notify(new DocumentStoreRollbackEvent(), this.xcontext.getWikiId());
+                saves = rollback(saves, copies);
+            }
+            if (committed) {
+                for (PendingSave save : saves) {
+                    this.saved.add(save.label);
+                }
+                this.logger.info("Saved [{}] documents ([{}] in total)", saves.size(), this.saved.size());
+                return;
+            }
+        }
+
+        saveOneByOne(saves);
+    }
+
+    /**
+     * @return the saves to do again, with the documents as they were before being saved
+     */
+    private List<PendingSave> rollback(List<PendingSave> saves, List<XWikiDocument> copies)
+    {
+        XWikiStoreInterface wikiStore = this.xcontext.getWiki().getStore();
+        List<PendingSave> retries = new ArrayList<>(saves.size());
+        for (int i = 0; i < saves.size(); i++) {
+            PendingSave save = saves.get(i);
+            if (wikiStore instanceof XWikiCacheStore) {
+                // Don't serve the rolled back version of the document from the cache
+                XWikiCacheStore cacheStore = (XWikiCacheStore) wikiStore;
+                String key = cacheStore.getKey(save.document, this.xcontext);
+                cacheStore.getCache().remove(key);
+                cacheStore.getPageExistCache().remove(key);
+            }
+            retries.add(new PendingSave(copies.get(i), save.comment, save.label));
+        }
+        return retries;
+    }
+
+    private void saveOneByOne(List<PendingSave> saves)
+    {
+        for (PendingSave save : saves) {
+            try {
+                this.xcontext.getWiki().saveDocument(save.document, save.comment, true, this.xcontext);
+                this.saved.add(save.label);
+            } catch (XWikiException e) {
+                this.failed++;
+                this.logger.warn("Failed to save document [{}]. Reason: [{}]", save.document.getDocumentReference(),
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+        this.logger.info("Saved [{}] documents one by one ([{}] saved in total, [{}] failed)", saves.size(),
+            this.saved.size(), this.failed);
+    }
+
+    /**
+     * @return the labels of the documents that have been saved
+     */
+    public List<String> getSaved()
+    {
+        return this.saved;
+    }
+
+    /**
+     * @return the number of documents that couldn't be saved
+     */
+    public int getFailedCount()
+    {
+        return this.failed;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import org.xwiki.observation.event.Event;
+
+/**
+ * Sent when a storage transaction grouping several document saves or deletions has been rolled back. The document
+ * events of the rolled back changes have already been sent at that point, so the components keeping in-memory data up
+ * to date from these events must drop the data of the wiki. The event source is the id of the wiki.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class DocumentStoreRollbackEvent implements Event
+{
+    @Override
+    public boolean matches(Object otherEvent)
+    {
+        return otherEvent instanceof DocumentStoreRollbackEvent;
+    }
+}
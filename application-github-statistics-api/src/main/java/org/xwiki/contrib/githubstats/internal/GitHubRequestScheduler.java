@@ -0,0 +1,263 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.kohsuke.github.GHRateLimit;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.HttpException;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+
+/**
+ * Executes the GitHub API calls while staying within the GitHub rate limits, so that long imports don't fail (or skip
+ * data) once a rate limit is reached. The core budget is read from the rate limit headers of the last response and
+ * the calls are paced when it's low; the search budget (which isn't reported the same way) is tracked over a sliding
+ * minute. When a budget is exhausted the calls wait until it's reset and are then retried.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = GitHubRequestScheduler.class)
+@Singleton
+public class GitHubRequestScheduler
+{
+    /**
+     * The GitHub rate limit a call counts against.
+     */
+    public enum Budget
+    {
+        /**
+         * Most of the API calls.
+         */
+        CORE,
+
+        /**
+         * The search API calls.
+         */
+        SEARCH,
+
+        /**
+         * The GraphQL API calls, whose rate limit is reported with {@link #recordGraphQLRateLimit}.
+         */
+        GRAPHQL
+    }
+
+    /**
+     * A call to the GitHub API.
+     *
+     * @param <T> the type of the call result
+     */
+    @FunctionalInterface
+    public interface GitHubCall<T>
+    {
+        /**
+         * @return the result of the call
+         * @throws IOException if the call fails
+         */
+        T call() throws IOException;
+    }
+
+    /**
+     * Number of remaining core calls below which the calls are spread until the reset of the rate limit.
+     */
+    private static final int PACING_THRESHOLD = 50;
+
+    private static final int SEARCH_LIMIT = 30;
+
+    private static final int ANONYMOUS_SEARCH_LIMIT = 10;
+
+    private static final long SEARCH_WINDOW = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Margin added when waiting for a reset, since the clocks of GitHub and of the server can differ a bit.
+     */
+    private static final long RESET_MARGIN = TimeUnit.SECONDS.toMillis(1);
+
+    private static final int MAX_RETRIES = 3;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The start time of the recent search calls of each client.
+     */
+    private final Map<GitHub, Deque<Long>> searchCalls = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * The GraphQL rate limit of each client, as reported by the last GraphQL response.
+     */
+    private final Map<GitHub, GHRateLimit> graphQLRateLimits = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Execute the passed call once the budget allows it, and retry it after waiting for the reset of the rate limit if
+     * it fails because the rate limit has been reached anyway.
+     *
+     * @param gitHub the client used by the call
+     * @param budget the rate limit the call counts against
+     * @param call the call
+     * @param <T> the type of the call result
+     * @return the result of the call
+     * @throws IOException if the call fails, or if the rate limit is still reached after several retries
+     */
+    public <T> T execute(GitHub gitHub, Budget budget, GitHubCall<T> call) throws IOException
+    {
+        for (int attempt = 0;; attempt++) {
+            if (budget == Budget.SEARCH) {
+                waitForSearchBudget(gitHub);
+            } else {
+                waitForBudget(getRateLimit(gitHub, budget), budget);
+            }
+            try {
+                return call.call();
+            } catch (IOException | RuntimeException e) {
+                // The paged iterables wrap the request failures in runtime exceptions
+                IOException cause = getIOException(e);
+                if (cause == null) {
+                    throw (RuntimeException) e;
+                } else if (!isRateLimitError(cause) || attempt >= MAX_RETRIES) {
+                    throw cause;
+                }
+                long wait = getRetryDelay(gitHub, budget);
+                this.logger.info("GitHub {} rate limit reached, retrying in [{}] seconds", budget,
+                    TimeUnit.MILLISECONDS.toSeconds(wait));
+                sleep(wait);
+            }
+        }
+    }
+
+    /**
+     * Record the GraphQL rate limit of a client, since it's not tracked by the client itself.
+     *
+     * @param gitHub the client that made the GraphQL call
+     * @param remaining the number of points remaining in the current rate limit window
+     * @param reset the date at which the rate limit window is reset
+     */
+    public void recordGraphQLRateLimit(GitHub gitHub, int remaining, Date reset)
+    {
+        GHRateLimit rateLimit = new GHRateLimit();
+        rateLimit.remaining = remaining;
+        rateLimit.reset = reset;
+        this.graphQLRateLimits.put(gitHub, rateLimit);
+    }
+
+    /**
+     * @param e an exception thrown by a GitHub call
+     * @return {@code true} if the call failed because a rate limit has been reached
+     */
+    public boolean isRateLimitError(Throwable e)
+    {
+        for (Throwable throwable : ExceptionUtils.getThrowableList(e)) {
+            String message = throwable.getMessage();
+            boolean forbidden = !(throwable instanceof HttpException)
+                || ((HttpException) throwable).getResponseCode() == 403;
+            if (forbidden && (StringUtils.containsIgnoreCase(message, "rate limit")
+                || StringUtils.containsIgnoreCase(message, "abuse")))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private IOException getIOException(Exception e)
+    {
+        int index = ExceptionUtils.indexOfType(e, IOException.class);
+        return index >= 0 ? (IOException) ExceptionUtils.getThrowableList(e).get(index) : null;
+    }
+
+    private GHRateLimit getRateLimit(GitHub gitHub, Budget budget)
+    {
+        // Not known before the first response
+        return budget == Budget.GRAPHQL ? this.graphQLRateLimits.get(gitHub) : gitHub.lastRateLimit();
+    }
+
+    private void waitForBudget(GHRateLimit rateLimit, Budget budget) throws IOException
+    {
+        if (rateLimit != null && rateLimit.getResetDate() != null && rateLimit.remaining < PACING_THRESHOLD) {
+            long untilReset = rateLimit.getResetDate().getTime() - System.currentTimeMillis();
+            if (untilReset > 0) {
+                if (rateLimit.remaining <= 0) {
+                    this.logger.info("GitHub {} rate limit exhausted, waiting [{}] seconds for its reset", budget,
+                        TimeUnit.MILLISECONDS.toSeconds(untilReset));
+                    sleep(untilReset + RESET_MARGIN);
+                } else {
+                    // Spread the remaining calls until the reset
+                    sleep(untilReset / rateLimit.remaining);
+                }
+            }
+        }
+    }
+
+    private void waitForSearchBudget(GitHub gitHub) throws IOException
+    {
+        Deque<Long> calls = this.searchCalls.computeIfAbsent(gitHub, key -> new ArrayDeque<>());
+        int limit = gitHub.isAnonymous() ? ANONYMOUS_SEARCH_LIMIT : SEARCH_LIMIT;
+        synchronized (calls) {
+            long now = System.currentTimeMillis();
+            while (!calls.isEmpty() && calls.peekFirst() <= now - SEARCH_WINDOW) {
+                calls.pollFirst();
+            }
+            if (calls.size() >= limit) {
+                // Wait until the oldest call leaves the window
+                long wait = calls.peekFirst() + SEARCH_WINDOW - now;
+                this.logger.debug("GitHub search rate limit reached, waiting [{}] ms", wait);
+                sleep(wait);
+                calls.pollFirst();
+            }
+            calls.addLast(System.currentTimeMillis());
+        }
+    }
+
+    private long getRetryDelay(GitHub gitHub, Budget budget)
+    {
+        GHRateLimit rateLimit = getRateLimit(gitHub, budget);
+        if (budget != Budget.SEARCH && rateLimit != null && rateLimit.getResetDate() != null) {
+            // The reset may have happened in the meantime
+            return Math.max(0, rateLimit.getResetDate().getTime() - System.currentTimeMillis()) + RESET_MARGIN;
+        }
+        // The search rate limit (and the abuse detection) works on a minute basis
+        return SEARCH_WINDOW;
+    }
+
+    private void sleep(long millis) throws IOException
+    {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the GitHub rate limit");
+        }
+    }
+}
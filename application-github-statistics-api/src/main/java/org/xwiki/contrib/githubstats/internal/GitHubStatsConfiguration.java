@@ -0,0 +1,92 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import org.xwiki.component.annotation.Role;
+
+/**
+ * Configuration options for the GitHub Stats application, read from {@code xwiki.properties}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Role
+public interface GitHubStatsConfiguration
+{
+    /**
+     * @return the number of repositories that are cloned/updated and scanned concurrently
+     */
+    int getScanThreads();
+
+    /**
+     * @return the maximum number of repositories that are cloned/updated concurrently from the same Git host
+     */
+    int getMaxConnectionsPerHost();
+
+    /**
+     * @return {@code true} if the repositories should be stored as bare clones (commit metadata only, no working tree)
+     *         rather than as full clones managed by the Git API
+     */
+    boolean isBareRepositoryStorage();
+
+    /**
+     * @return the number of seconds between two background refreshes of the known repositories, {@code 0} to disable
+     *         the background refresh and fetch the repositories when they're displayed
+     */
+    int getRefreshPeriod();
+
+    /**
+     * @return the number of seconds a repository is skipped after a first failure to clone/update or scan it, doubled
+     *         for each consecutive failure
+     */
+    int getFailureBackoff();
+
+    /**
+     * @return the maximum number of seconds a failing repository is skipped
+     */
+    int getMaxFailureBackoff();
+
+    /**
+     * @return the number of seconds between two repackings of the local clones, {@code 0} to disable them
+     */
+    int getMaintenancePeriod();
+
+    /**
+     * @return the number of author pages saved in a single transaction when importing all authors
+     */
+    int getImportBatchSize();
+
+    /**
+     * @return the maximum size, in megabytes, of the on-disk cache of the GitHub API responses, {@code 0} to disable it
+     */
+    int getGitHubCacheSize();
+
+    /**
+     * @return the number of seconds during which the outcome of a GitHub user lookup for an author is reused instead of
+     *         searching the user again, {@code 0} to always search
+     */
+    int getUserLookupTTL();
+
+    /**
+     * @return {@code true} if the GitHub users of the authors should first be looked up through the authors' commits
+     *         (exact, and cheaper than searching the users), before falling back on searches
+     */
+    boolean isCommitUserLookup();
+}
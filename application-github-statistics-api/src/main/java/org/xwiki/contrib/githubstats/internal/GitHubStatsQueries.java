@@ -0,0 +1,146 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+
+/**
+ * Registry of the queries executed by the GitHub Stats application. The statements are built once, never contain
+ * values (values are bound as query parameters) and are thus always the same strings, so that their parsed form and
+ * their plan can be reused by Hibernate and the database.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = GitHubStatsQueries.class)
+@Singleton
+public class GitHubStatsQueries implements Initializable
+{
+    /**
+     * The organization, id and Git URL of all the repositories. No parameter.
+     */
+    public static final String REPOSITORY_URLS = "repositoryURLs";
+
+    /**
+     * The full name of the author pages with the organization, repository and committer flag of each of their
+     * repositories. No parameter.
+     */
+    public static final String AUTHOR_REPOSITORIES = "authorRepositories";
+
+    /**
+     * The string properties (id, email, name, avatar, company and profile URL) of the author xobjects, one row per
+     * property that has been set: the full name of the page, the number of the xobject, the name of the property and
+     * its value, ordered by page and xobject. Parameter: {@code className}, the local reference of the author class.
+     */
+    public static final String AUTHORS = "authors";
+
+    /**
+     * The space and name of the pages having an object of a given class. Parameter: {@code className}, the local
+     * reference of the class.
+     */
+    public static final String DOCUMENTS_WITH_CLASS = "documentsWithClass";
+
+    private static final String SPACE = "GitHubStats";
+
+    private static final EntityReference REPOSITORY_CLASS = new EntityReference("RepositoryClass",
+        EntityType.DOCUMENT, new EntityReference(SPACE, EntityType.SPACE));
+
+    private static final EntityReference AUTHOR_REPOSITORY_CLASS = new EntityReference("AuthorRepositoryClass",
+        EntityType.DOCUMENT, new EntityReference(SPACE, EntityType.SPACE));
+
+    private static class NamedStatement
+    {
+        private final String statement;
+
+        private final String language;
+
+        NamedStatement(String statement, String language)
+        {
+            this.statement = statement;
+            this.language = language;
+        }
+    }
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private EntityReferenceSerializer<String> defaultSerializer;
+
+    private final Map<String, NamedStatement> statements = new HashMap<>();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.statements.put(REPOSITORY_URLS, new NamedStatement(
+            String.format("select distinct repo.organization, repo.id, repo.giturl from Document doc, "
+                + "doc.object(%s) as repo", this.defaultSerializer.serialize(REPOSITORY_CLASS)), Query.XWQL));
+        this.statements.put(AUTHOR_REPOSITORIES, new NamedStatement(
+            String.format("select doc.fullName, repo.organizationId, repo.repositoryId, repo.committer "
+                + "from Document doc, doc.object(%s) as repo",
+                this.defaultSerializer.serialize(AUTHOR_REPOSITORY_CLASS)), Query.XWQL));
+        // Each property selected with XWQL is an inner join on its row, which would skip the authors for which some of
+        // the properties have never been set (e.g. the ones not imported from GitHub yet)
+        this.statements.put(AUTHORS, new NamedStatement("select obj.name, obj.number, prop.id.name, prop.value "
+            + "from BaseObject obj, StringProperty prop where obj.className = :className and prop.id.id = obj.id "
+            + "order by obj.name, obj.number", Query.HQL));
+        // The class is bound instead of being part of the statement so that the statement is the same for all classes
+        this.statements.put(DOCUMENTS_WITH_CLASS, new NamedStatement("select distinct doc.space, doc.name "
+            + "from XWikiDocument doc, BaseObject obj where obj.name = doc.fullName and obj.className = :className",
+            Query.HQL));
+    }
+
+    /**
+     * @param name the name of the query, one of the constants of this class
+     * @return a new query for the named statement, whose parameters still need to be bound
+     * @throws QueryException if the query cannot be created
+     */
+    public Query createQuery(String name) throws QueryException
+    {
+        NamedStatement statement = this.statements.get(name);
+        if (statement == null) {
+            throw new QueryException(String.format("Unknown query [%s]", name), null, null);
+        }
+        return this.queryManager.createQuery(statement.statement, statement.language);
+    }
+
+    /**
+     * @param classReference a class reference
+     * @return the value to bind for the {@code className} parameter
+     */
+    public String getClassName(EntityReference classReference)
+    {
+        return this.defaultSerializer.serialize(classReference);
+    }
+}
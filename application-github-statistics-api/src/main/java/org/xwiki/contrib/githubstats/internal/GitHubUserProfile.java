@@ -0,0 +1,124 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.IOException;
+
+import org.kohsuke.github.GHUser;
+
+/**
+ * The GitHub user data imported in the {@code AuthorClass} objects, whether it comes from the REST API or from the
+ * GraphQL API.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class GitHubUserProfile
+{
+    private final String login;
+
+    private final String name;
+
+    private final String email;
+
+    private final String avatarURL;
+
+    private final String company;
+
+    private final String profileURL;
+
+    /**
+     * @param login the user login
+     * @param name the user full name
+     * @param email the user public email
+     * @param avatarURL the URL of the user avatar
+     * @param company the user company
+     * @param profileURL the URL of the user profile, {@code null} if unknown
+     */
+    public GitHubUserProfile(String login, String name, String email, String avatarURL, String company,
+        String profileURL)
+    {
+        this.login = login;
+        this.name = name;
+        this.email = email;
+        this.avatarURL = avatarURL;
+        this.company = company;
+        this.profileURL = profileURL;
+    }
+
+    /**
+     * @param user the user returned by the REST API
+     * @throws IOException if the user data that isn't loaded yet fails to be retrieved
+     */
+    public GitHubUserProfile(GHUser user) throws IOException
+    {
+        // TODO: There's currently no way to get the User HTML URL,
+        // See https://github.com/kohsuke/github-api/issues/52
+        this(user.getLogin(), user.getName(), user.getEmail(), user.getAvatarUrl(), user.getCompany(), null);
+    }
+
+    /**
+     * @return the user login
+     */
+    public String getLogin()
+    {
+        return this.login;
+    }
+
+    /**
+     * @return the user full name
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * @return the user public email
+     */
+    public String getEmail()
+    {
+        return this.email;
+    }
+
+    /**
+     * @return the URL of the user avatar
+     */
+    public String getAvatarURL()
+    {
+        return this.avatarURL;
+    }
+
+    /**
+     * @return the user company
+     */
+    public String getCompany()
+    {
+        return this.company;
+    }
+
+    /**
+     * @return the URL of the user profile, {@code null} if unknown
+     */
+    public String getProfileURL()
+    {
+        return this.profileURL;
+    }
+}
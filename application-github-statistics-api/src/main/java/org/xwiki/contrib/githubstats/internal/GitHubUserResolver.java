@@ -0,0 +1,329 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.HttpConnector;
+import org.kohsuke.github.HttpException;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Locates the GitHub users matching the authors with the GraphQL API, batching the lookups of many authors in a single
+ * query (using aliases): either the user GitHub associated with one of the author's commits, or searches, instead of
+ * making up to 3 search API calls per author. The GraphQL API requires an authenticated client, see
+ * {@link #register(GitHub, String)}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = GitHubUserResolver.class)
+@Singleton
+public class GitHubUserResolver
+{
+    /**
+     * Number of authors located by a single GraphQL query. Each author takes 3 searches and GitHub rejects queries
+     * with too many nodes.
+     */
+    public static final int BATCH_SIZE = 25;
+
+    /**
+     * Number of commits whose author is retrieved by a single GraphQL query.
+     */
+    private static final int COMMIT_BATCH_SIZE = 100;
+
+    private static final String USER_FIELDS = "login name email avatarUrl company url";
+
+    private static final String USER_FORMAT = "  %1$s: user(login: $%1$s) { %2$s }%n";
+
+    private static final String COMMIT_FORMAT =
+        "    %1$s: object(oid: \"%2$s\") { ... on Commit { author { user { %3$s } } } }%n";
+
+    private static final String SEARCH_FORMAT =
+        "  %1$s: search(query: $%1$s, type: USER, first: 1) { userCount nodes { ... on User { %2$s } } }%n";
+
+    private static final String LOGIN = "login";
+
+    private static final String USER = "user";
+
+    private static final String COMMIT = "commit";
+
+    private static final String EMAIL = "email";
+
+    private static final String NODES = "nodes";
+
+    private static final String DATA = "data";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private GitHubRequestScheduler gitHubScheduler;
+
+    /**
+     * The OAuth tokens of the clients, which can't be retrieved from the clients themselves.
+     */
+    private final Map<GitHub, String> authTokens = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Allow the passed client to make GraphQL calls.
+     *
+     * @param gitHub an authenticated client
+     * @param authToken the OAuth token used by the client
+     */
+    public void register(GitHub gitHub, String authToken)
+    {
+        if (StringUtils.isNotEmpty(authToken)) {
+            this.authTokens.put(gitHub, authToken);
+        }
+    }
+
+    /**
+     * @param gitHub a client
+     * @return {@code true} if the passed client can be used to locate users with the GraphQL API
+     */
+    public boolean canResolve(GitHub gitHub)
+    {
+        return this.authTokens.containsKey(gitHub);
+    }
+
+    /**
+     * Locate the GitHub users matching the passed authors. As for the search API based lookup, a user is matched when
+     * its login, otherwise its email, otherwise its full name, uniquely matches the author id, email and id. Only the
+     * {@link AuthorLookup#getPendingStrategies() pending} searches are made, and the users whose login is already
+     * known are retrieved directly.
+     *
+     * @param gitHub the client to use, which must have been {@link #register(GitHub, String) registered}
+     * @param lookups the lookups of the authors to locate, at most {@link #BATCH_SIZE}, updated with the search
+     *            outcomes and the matching users
+     * @throws IOException if the GraphQL query fails
+     */
+    public void resolve(GitHub gitHub, List<AuthorLookup> lookups) throws IOException
+    {
+        // Use variables so that the search terms don't need to be escaped
+        StringBuilder declarations = new StringBuilder();
+        StringBuilder selections = new StringBuilder();
+        Map<String, String> variables = new LinkedHashMap<>();
+        for (int i = 0; i < lookups.size(); i++) {
+            AuthorLookup lookup = lookups.get(i);
+            if (lookup.getKnownLogin() != null) {
+                String alias = getAlias(i, USER);
+                variables.put(alias, lookup.getKnownLogin());
+                declarations.append('$').append(alias).append(": String!, ");
+                selections.append(String.format(USER_FORMAT, alias, USER_FIELDS));
+            }
+            for (AuthorLookup.Strategy strategy : lookup.getPendingStrategies()) {
+                addSearch(i, strategy, lookup.getTerm(strategy), declarations, selections, variables);
+            }
+        }
+        if (variables.isEmpty()) {
+            return;
+        }
+        JsonNode data = query(gitHub, String.format("query(%s) {%n%s  rateLimit { remaining resetAt }%n}",
+            StringUtils.removeEnd(declarations.toString(), ", "), selections), variables);
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < lookups.size(); i++) {
+            AuthorLookup lookup = lookups.get(i);
+            JsonNode user = null;
+            if (lookup.getKnownLogin() != null) {
+                // Null if the user has been renamed or deleted since
+                user = data.path(getAlias(i, USER)).isObject() ? data.get(getAlias(i, USER)) : null;
+            }
+            for (AuthorLookup.Strategy strategy : lookup.getPendingStrategies()) {
+                JsonNode search = data.path(getAlias(i, strategy.getQualifier()));
+                AuthorLookup.Outcome outcome = AuthorLookup.Outcome.fromCount(search.path("userCount").asInt());
+                JsonNode match = search.path(NODES).path(0);
+                if (outcome == AuthorLookup.Outcome.FOUND && match.isObject()) {
+                    lookup.record(strategy, outcome, getText(match, LOGIN), now);
+                    // The first matching search takes precedence
+                    user = user == null ? match : user;
+                } else if (outcome != AuthorLookup.Outcome.FOUND && search.isObject()) {
+                    lookup.record(strategy, outcome, null, now);
+                }
+            }
+            if (user != null) {
+                lookup.setUser(toUserProfile(user));
+            }
+        }
+    }
+
+    /**
+     * Find the GitHub users that GitHub associates with the passed commits (through the commit author email), which
+     * is exact, unlike the searches.
+     *
+     * @param gitHub the client to use, which must have been {@link #register(GitHub, String) registered}
+     * @param repository the repository holding the commits
+     * @param commits a commit id for each author
+     * @param <T> the type of the authors
+     * @return the GitHub user of the authors whose commit is associated with one
+     * @throws IOException if a GraphQL query fails
+     */
+    public <T> Map<T, GitHubUserProfile> resolveCommitAuthors(GitHub gitHub, GitHubRepository repository,
+        Map<T, String> commits) throws IOException
+    {
+        Map<T, GitHubUserProfile> users = new HashMap<>();
+        List<Map.Entry<T, String>> entries = new ArrayList<>(commits.entrySet());
+        for (int start = 0; start < entries.size(); start += COMMIT_BATCH_SIZE) {
+            List<Map.Entry<T, String>> batch =
+                entries.subList(start, Math.min(start + COMMIT_BATCH_SIZE, entries.size()));
+            StringBuilder selections = new StringBuilder();
+            for (int i = 0; i < batch.size(); i++) {
+                // Commit ids are hexadecimal so they can be inlined
+                selections.append(String.format(COMMIT_FORMAT, getAlias(i, COMMIT), batch.get(i).getValue(),
+                    USER_FIELDS));
+            }
+            Map<String, String> variables = new LinkedHashMap<>();
+            variables.put("owner", repository.getOrganizationId());
+            variables.put("name", repository.getRepositoryId());
+            JsonNode data = query(gitHub, String.format("query($owner: String!, $name: String!) {%n"
+                + "  repository(owner: $owner, name: $name) {%n%s  }%n  rateLimit { remaining resetAt }%n}",
+                selections), variables);
+
+            for (int i = 0; i < batch.size(); i++) {
+                // Null when the commit email isn't associated with a GitHub user
+                JsonNode user = data.path("repository").path(getAlias(i, COMMIT)).path("author").path(USER);
+                if (user.isObject()) {
+                    users.put(batch.get(i).getKey(), toUserProfile(user));
+                }
+            }
+        }
+        return users;
+    }
+
+    private JsonNode query(GitHub gitHub, String query, Map<String, String> variables) throws IOException
+    {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("query", query);
+        request.put("variables", variables);
+        JsonNode data = this.gitHubScheduler.execute(gitHub, GitHubRequestScheduler.Budget.GRAPHQL,
+            () -> post(gitHub, request));
+
+        JsonNode rateLimit = data.path("rateLimit");
+        if (rateLimit.hasNonNull("resetAt")) {
+            this.gitHubScheduler.recordGraphQLRateLimit(gitHub, rateLimit.path("remaining").asInt(),
+                Date.from(Instant.parse(rateLimit.get("resetAt").asText())));
+        }
+        return data;
+    }
+
+    private GitHubUserProfile toUserProfile(JsonNode user)
+    {
+        return new GitHubUserProfile(getText(user, LOGIN), getText(user, "name"), getText(user, EMAIL),
+            getText(user, "avatarUrl"), getText(user, "company"), getText(user, "url"));
+    }
+
+    private String getAlias(int index, String field)
+    {
+        return String.format("a%d%s", index, field);
+    }
+
+    private void addSearch(int index, AuthorLookup.Strategy strategy, String term, StringBuilder declarations,
+        StringBuilder selections, Map<String, String> variables)
+    {
+        // Same search as the one made with the search API, see DefaultGitHubStatsManager#searchUniqueUser()
+        String alias = getAlias(index, strategy.getQualifier());
+        variables.put(alias, String.format("\"%s\" in:%s type:user", term, strategy.getQualifier()));
+        declarations.append('$').append(alias).append(": String!, ");
+        selections.append(String.format(SEARCH_FORMAT, alias, USER_FIELDS));
+    }
+
+    private String getText(JsonNode node, String field)
+    {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private JsonNode post(GitHub gitHub, Map<String, Object> request) throws IOException
+    {
+        URL url = getGraphQLURL(gitHub);
+        // Reuse the connections of the client when possible
+        HttpConnector connector = gitHub.getConnector() != null ? gitHub.getConnector() : HttpConnector.DEFAULT;
+        HttpURLConnection connection = connector.connect(url);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Authorization", "bearer " + this.authTokens.get(gitHub));
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream output = connection.getOutputStream()) {
+            MAPPER.writeValue(output, request);
+        }
+
+        int code = connection.getResponseCode();
+        if (code != HttpURLConnection.HTTP_OK) {
+            String message;
+            try (InputStream error = connection.getErrorStream()) {
+                message = error != null ? IOUtils.toString(error, StandardCharsets.UTF_8) : null;
+            }
+            throw new HttpException(StringUtils.defaultIfEmpty(message, connection.getResponseMessage()), code,
+                connection.getResponseMessage(), url.toString());
+        }
+
+        JsonNode response;
+        try (InputStream input = connection.getInputStream()) {
+            response = MAPPER.readTree(input);
+        }
+        for (JsonNode error : response.path("errors")) {
+            String message = error.path("message").asText();
+            if ("RATE_LIMITED".equals(error.path("type").asText())) {
+                throw new IOException("GraphQL API rate limit reached: " + message);
+            } else if (!response.hasNonNull(DATA)) {
+                throw new IOException(String.format("GraphQL query to [%s] failed: %s", url, message));
+            }
+            // Partial results
+            this.logger.warn("Error in the GraphQL response from [{}]: [{}]", url, message);
+        }
+
+        return response.path(DATA);
+    }
+
+    private URL getGraphQLURL(GitHub gitHub) throws IOException
+    {
+        // https://api.github.com/graphql for GitHub, https://host/api/graphql for GitHub Enterprise
+        String apiURL = StringUtils.removeEnd(StringUtils.removeEnd(gitHub.getApiUrl(), "/"), "/v3");
+        return new URL(apiURL + "/graphql");
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps values (authors, repositories) to dense int ids, allocated in the order the values are first seen, so that
+ * sets of values can be stored as {@link java.util.BitSet}s. Not thread safe.
+ *
+ * @param <T> the type of the values
+ * @version $Id$
+ * @since 2.3
+ */
+public class IdentityDictionary<T>
+{
+    private final Map<T, Integer> ids = new HashMap<>();
+
+    private final List<T> values = new ArrayList<>();
+
+    /**
+     * @param value the value
+     * @return the id of the value, allocated if the value hasn't been seen yet
+     */
+    public int getId(T value)
+    {
+        Integer id = this.ids.get(value);
+        if (id == null) {
+            id = this.values.size();
+            this.ids.put(value, id);
+            this.values.add(value);
+        }
+        return id;
+    }
+
+    /**
+     * @param id an id allocated by {@link #getId(Object)}
+     * @return the value with that id
+     */
+    public T getValue(int id)
+    {
+        return this.values.get(id);
+    }
+
+    /**
+     * @return the number of values in the dictionary, which is also the next id to be allocated
+     */
+    public int size()
+    {
+        return this.values.size();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.contrib.githubstats.RepositoryFailure;
+
+/**
+ * Remembers the repositories that recently failed to be cloned/updated or scanned (for example because they're empty,
+ * deleted or unreachable) so that they're skipped for a while instead of costing a network timeout on each import or
+ * display. The delay before retrying doubles with each consecutive failure, up to a configured maximum.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = RepositoryFailureRegistry.class)
+@Singleton
+public class RepositoryFailureRegistry
+{
+    @Inject
+    private GitHubStatsConfiguration configuration;
+
+    private final Map<GitHubRepository, RepositoryFailure> failures = new ConcurrentHashMap<>();
+
+    /**
+     * @param repository a repository
+     * @return {@code false} if the repository failed recently and should be skipped, {@code true} otherwise
+     */
+    public boolean isAvailable(GitHubRepository repository)
+    {
+        RepositoryFailure failure = this.failures.get(repository);
+        return failure == null || !failure.isBackingOff(System.currentTimeMillis());
+    }
+
+    /**
+     * Record a new failure of the passed repository and compute when it can be retried.
+     *
+     * @param repository the repository that failed
+     * @param cause the cause of the failure
+     * @return the failure state of the repository
+     */
+    public RepositoryFailure recordFailure(GitHubRepository repository, Throwable cause)
+    {
+        return this.failures.compute(repository, (key, previous) -> {
+            int count = previous != null ? previous.getCount() + 1 : 1;
+            long maxBackoff = TimeUnit.SECONDS.toMillis(Math.max(0, this.configuration.getMaxFailureBackoff()));
+            long backoff = TimeUnit.SECONDS.toMillis(Math.max(0, this.configuration.getFailureBackoff()));
+            // Double the delay for each consecutive failure, without overflowing
+            for (int i = 1; i < count && backoff < maxBackoff; i++) {
+                backoff *= 2;
+            }
+            long now = System.currentTimeMillis();
+            return new RepositoryFailure(repository, count, now, now + Math.min(backoff, maxBackoff),
+                ExceptionUtils.getRootCauseMessage(cause));
+        });
+    }
+
+    /**
+     * Forget the previous failures of the passed repository, after it has been processed successfully.
+     *
+     * @param repository the repository
+     */
+    public void recordSuccess(GitHubRepository repository)
+    {
+        this.failures.remove(repository);
+    }
+
+    /**
+     * @return the repositories that failed recently, including the ones that can be retried
+     */
+    public Collection<RepositoryFailure> getFailures()
+    {
+        return new ArrayList<>(this.failures.values());
+    }
+
+    /**
+     * Forget all failures, so that all repositories are retried.
+     */
+    public void clear()
+    {
+        this.failures.clear();
+    }
+}
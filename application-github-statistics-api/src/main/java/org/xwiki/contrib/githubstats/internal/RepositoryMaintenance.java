@@ -0,0 +1,108 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+
+/**
+ * Repacks the local clones of the repositories, since incremental fetches leave many small packs behind which slow
+ * down the history walks. The time needed to walk the full history of each repository is logged before and after the
+ * repacking.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = RepositoryMaintenance.class)
+@Singleton
+public class RepositoryMaintenance
+{
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private RepositoryStore repositoryStore;
+
+    /**
+     * Repack the local clones of the passed repositories. The ones that haven't been cloned yet are skipped.
+     *
+     * @param repositories the repositories
+     */
+    public void maintain(Collection<GitHubRepository> repositories)
+    {
+        for (GitHubRepository repository : repositories) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                maintain(repository);
+            } catch (Exception e) {
+                this.logger.warn("Failed to repack repository [{}/{}]. Reason: [{}]", repository.getOrganizationId(),
+                    repository.getRepositoryId(), ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+    }
+
+    private void maintain(GitHubRepository repository) throws Exception
+    {
+        Repository localRepository = this.repositoryStore.getLocalRepository(repository);
+        if (localRepository == null) {
+            return;
+        }
+        long before = walk(localRepository);
+        if (this.repositoryStore.repack(repository)) {
+            long after = walk(localRepository);
+            this.logger.info("Repacked repository [{}/{}]: walking its history took [{}] ms before and [{}] ms after",
+                repository.getOrganizationId(), repository.getRepositoryId(), before, after);
+        }
+    }
+
+    /**
+     * @return the time needed to walk the full history from HEAD, in milliseconds
+     */
+    private long walk(Repository repository) throws IOException
+    {
+        long start = System.nanoTime();
+        ObjectId head = repository.resolve(Constants.HEAD);
+        if (head != null) {
+            try (RevWalk walk = new RevWalk(repository)) {
+                walk.setRetainBody(false);
+                walk.markStart(walk.parseCommit(head));
+                while (walk.next() != null) {
+                    // Only the walk time matters
+                }
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.contrib.githubstats.RepositoryFailure;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * Periodically fetches the known repositories in the background and brings their commit activity index up to date,
+ * so that displaying statistics only needs to read the local clones. The fetches are spread over the refresh period
+ * (with some jitter) and the repositories that have been displayed most recently are refreshed first. The local
+ * clones are also repacked periodically. Each refresh cycle starts by registering the repositories defined in all the
+ * wikis, so that they're refreshed even if their statistics haven't been displayed since the server started.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = RepositoryRefreshScheduler.class)
+@Singleton
+public class RepositoryRefreshScheduler implements Initializable, Disposable
+{
+    private static class RefreshEntry
+    {
+        private final String uri;
+
+        private volatile long lastUsed;
+
+        RefreshEntry(String uri)
+        {
+            this.uri = uri;
+        }
+    }
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private GitHubStatsConfiguration configuration;
+
+    @Inject
+    private RepositoryStore repositoryStore;
+
+    @Inject
+    private CommitActivityIndex activityIndex;
+
+    @Inject
+    private RepositoryFailureRegistry failureRegistry;
+
+    @Inject
+    private RepositoryMaintenance maintenance;
+
+    @Inject
+    private RepositoryRegistry repositoryRegistry;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    private final Map<GitHubRepository, RefreshEntry> repositories = new ConcurrentHashMap<>();
+
+    private final Random random = new Random();
+
+    private ScheduledExecutorService executor;
+
+    private long period;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.period = TimeUnit.SECONDS.toMillis(Math.max(0, this.configuration.getRefreshPeriod()));
+        long maintenancePeriod = Math.max(0, this.configuration.getMaintenancePeriod());
+        if (isEnabled() || maintenancePeriod > 0) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "GitHubStats repository refresh");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+        if (isEnabled()) {
+            this.executor.scheduleWithFixedDelay(this::refresh, this.period, this.period, TimeUnit.MILLISECONDS);
+        }
+        if (maintenancePeriod > 0) {
+            // Run by the same thread as the refresh so that a repository is never fetched while being repacked
+            this.executor.scheduleWithFixedDelay(() -> this.maintenance.maintain(this.repositories.keySet()),
+                maintenancePeriod, maintenancePeriod, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return {@code true} if the repositories are refreshed in the background, in which case the local clones can be
+     *         used as is
+     */
+    public boolean isEnabled()
+    {
+        return this.period > 0;
+    }
+
+    /**
+     * Add the passed repositories to the ones refreshed in the background.
+     *
+     * @param repositories the repositories, with their Git URIs
+     */
+    public void register(Map<GitHubRepository, String> repositories)
+    {
+        for (Map.Entry<GitHubRepository, String> entry : repositories.entrySet()) {
+            RefreshEntry refreshEntry = this.repositories.get(entry.getKey());
+            if (refreshEntry == null || !refreshEntry.uri.equals(entry.getValue())) {
+                this.repositories.put(entry.getKey(), new RefreshEntry(entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Indicate that the statistics of the passed repositories have just been displayed, so that they're refreshed
+     * before the others.
+     *
+     * @param repositories the repositories, with their Git URIs
+     */
+    public void markUsed(Map<GitHubRepository, String> repositories)
+    {
+        register(repositories);
+        long now = System.currentTimeMillis();
+        for (GitHubRepository repository : repositories.keySet()) {
+            this.repositories.get(repository).lastUsed = now;
+        }
+    }
+
+    private void refresh()
+    {
+        registerWikiRepositories();
+
+        List<Map.Entry<GitHubRepository, RefreshEntry>> entries = new ArrayList<>(this.repositories.entrySet());
+        if (entries.isEmpty()) {
+            return;
+        }
+        // Most recently displayed repositories first
+        entries.sort((e1, e2) -> Long.compare(e2.getValue().lastUsed, e1.getValue().lastUsed));
+
+        // Spread the fetches over the first half of the period, so that a cycle is done before the next one starts
+        long interval = this.period / 2 / entries.size();
+        try {
+            for (Map.Entry<GitHubRepository, RefreshEntry> entry : entries) {
+                refresh(entry.getKey(), entry.getValue().uri);
+                if (interval > 0) {
+                    // Jitter of +/- 50% so that the fetches don't hit the Git hosts at regular intervals
+                    Thread.sleep(interval / 2 + (long) (this.random.nextDouble() * interval));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void registerWikiRepositories()
+    {
+        try {
+            // The refresh runs outside of any request, it needs its own context to query the wikis
+            this.executionContextManager.initialize(new ExecutionContext());
+            XWikiContext xcontext = this.xcontextProvider.get();
+            for (String wiki : this.wikiDescriptorManager.getAllIds()) {
+                xcontext.setWikiId(wiki);
+                try {
+                    register(this.repositoryRegistry.getRepositories(wiki));
+                } catch (Exception e) {
+                    this.logger.warn("Failed to load the repositories of wiki [{}]. Reason: [{}]", wiki,
+                        ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to load the repositories of the wikis. Reason: [{}]",
+                ExceptionUtils.getRootCauseMessage(e));
+        } finally {
+            this.execution.removeContext();
+        }
+    }
+
+    private void refresh(GitHubRepository repository, String uri)
+    {
+        if (!this.failureRegistry.isAvailable(repository)) {
+            return;
+        }
+        try {
+            this.activityIndex.update(repository, this.repositoryStore.getRepository(repository, uri));
+            this.failureRegistry.recordSuccess(repository);
+        } catch (Exception e) {
+            RepositoryFailure failure = this.failureRegistry.recordFailure(repository, e);
+            this.logger.warn("Failed to refresh repository [{}/{}], skipping it until [{}]. Reason: [{}]",
+                repository.getOrganizationId(), repository.getRepositoryId(), failure.getRetryDate(),
+                failure.getMessage());
+        }
+    }
+}
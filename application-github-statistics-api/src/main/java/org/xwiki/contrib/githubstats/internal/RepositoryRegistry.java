@@ -0,0 +1,279 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Cache of the repositories defined in each wiki (i.e. the {@code GitHubStats.RepositoryClass} objects), indexed by
+ * organization. The repositories of a wiki are loaded the first time they're needed, and loaded again after a
+ * repository page of the wiki has been modified (see {@link RepositoryRegistryListener}).
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = RepositoryRegistry.class)
+@Singleton
+public class RepositoryRegistry
+{
+    private static final EntityReference REPOSITORY_CLASS = new EntityReference("RepositoryClass",
+        EntityType.DOCUMENT, new EntityReference("GitHubStats", EntityType.SPACE));
+
+    private static final String WILDCARD = "*";
+
+    private static final int MAX_PATTERNS = 1000;
+
+    /**
+     * A repository pattern in the {@code (organization)/(repository)} format, where both parts can contain {@code *}
+     * wildcards.
+     */
+    private static class RepositoryPattern
+    {
+        private final String organization;
+
+        private final String repository;
+
+        private final Pattern organizationPattern;
+
+        private final Pattern repositoryPattern;
+
+        RepositoryPattern(String organization, String repository)
+        {
+            this.organization = organization;
+            this.repository = repository;
+            this.organizationPattern = compile(organization);
+            this.repositoryPattern = compile(repository);
+        }
+
+        /**
+         * @return the regular expression matching the passed glob, {@code null} if it doesn't contain wildcards
+         */
+        private static Pattern compile(String glob)
+        {
+            if (!glob.contains(WILDCARD) || WILDCARD.equals(glob)) {
+                return null;
+            }
+            StringBuilder regex = new StringBuilder();
+            for (String part : StringUtils.splitPreserveAllTokens(glob, WILDCARD)) {
+                if (regex.length() > 0) {
+                    regex.append(".*");
+                }
+                regex.append(Pattern.quote(part));
+            }
+            return Pattern.compile(regex.toString());
+        }
+
+        void collect(WikiRepositories repositories, Map<GitHubRepository, String> result)
+        {
+            if (this.organizationPattern == null && !WILDCARD.equals(this.organization)) {
+                // Only look at the repositories of the organization
+                collect(repositories.byOrganization.get(this.organization), result);
+            } else {
+                for (Map.Entry<String, Map<GitHubRepository, String>> entry : repositories.byOrganization.entrySet()) {
+                    if (WILDCARD.equals(this.organization)
+                        || this.organizationPattern.matcher(entry.getKey()).matches())
+                    {
+                        collect(entry.getValue(), result);
+                    }
+                }
+            }
+        }
+
+        private void collect(Map<GitHubRepository, String> organizationRepositories,
+            Map<GitHubRepository, String> result)
+        {
+            if (organizationRepositories == null) {
+                return;
+            }
+            for (Map.Entry<GitHubRepository, String> entry : organizationRepositories.entrySet()) {
+                String repositoryId = entry.getKey().getRepositoryId();
+                if (WILDCARD.equals(this.repository) || (this.repositoryPattern == null
+                    ? this.repository.equals(repositoryId) : this.repositoryPattern.matcher(repositoryId).matches()))
+                {
+                    result.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static class WikiRepositories
+    {
+        private final Map<GitHubRepository, String> urls = new HashMap<>();
+
+        private final Map<String, Map<GitHubRepository, String>> byOrganization = new HashMap<>();
+    }
+
+    @Inject
+    private GitHubStatsQueries queries;
+
+    private final Map<String, WikiRepositories> wikis = new HashMap<>();
+
+    /**
+     * The parsed patterns, since the same patterns are used each time a macro is rendered.
+     */
+    private final Map<String, RepositoryPattern> patterns = new ConcurrentHashMap<>();
+
+    /**
+     * @param wiki the wiki
+     * @return all the repositories defined in the wiki, with their Git URL
+     * @throws QueryException if the repositories of the wiki cannot be loaded
+     */
+    public Map<GitHubRepository, String> getRepositories(String wiki) throws QueryException
+    {
+        return new HashMap<>(getWikiRepositories(wiki).urls);
+    }
+
+    /**
+     * @param wiki the wiki
+     * @param repositoryPatterns patterns in the {@code (organization)/(repository)} format where both parts can
+     *            contain {@code *} wildcards (e.g. {@code xwiki/*} or {@code xwiki-contrib/application-*}); invalid
+     *            patterns are ignored
+     * @return the repositories defined in the wiki matching at least one of the passed patterns, with their Git URL
+     * @throws QueryException if the repositories of the wiki cannot be loaded
+     */
+    public Map<GitHubRepository, String> getRepositories(String wiki, String... repositoryPatterns)
+        throws QueryException
+    {
+        WikiRepositories repositories = getWikiRepositories(wiki);
+        Map<GitHubRepository, String> result = new HashMap<>();
+        for (String repositoryPattern : repositoryPatterns) {
+            RepositoryPattern pattern = getPattern(repositoryPattern);
+            if (pattern != null) {
+                pattern.collect(repositories, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param wiki the wiki
+     * @param gitHubRepositories some repositories
+     * @return the passed repositories that are defined in the wiki, with their Git URL
+     * @throws QueryException if the repositories of the wiki cannot be loaded
+     */
+    public Map<GitHubRepository, String> getRepositories(String wiki, Collection<GitHubRepository> gitHubRepositories)
+        throws QueryException
+    {
+        Map<GitHubRepository, String> urls = getWikiRepositories(wiki).urls;
+        Map<GitHubRepository, String> result = new HashMap<>();
+        for (GitHubRepository repository : gitHubRepositories) {
+            String url = urls.get(repository);
+            if (url != null) {
+                result.put(repository, url);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forget the repositories of the wiki of the passed document if the document defines or defined repositories.
+     *
+     * @param document the new version of a modified document
+     */
+    public void invalidate(XWikiDocument document)
+    {
+        if (hasRepositories(document) || hasRepositories(document.getOriginalDocument())) {
+            synchronized (this) {
+                this.wikis.remove(document.getDocumentReference().getWikiReference().getName());
+            }
+        }
+    }
+
+    /**
+     * Forget the repositories of the passed wiki. Called when changes that have already been applied to the registry
+     * are rolled back.
+     *
+     * @param wiki the wiki
+     */
+    public synchronized void invalidate(String wiki)
+    {
+        this.wikis.remove(wiki);
+    }
+
+    private boolean hasRepositories(XWikiDocument document)
+    {
+        if (document != null) {
+            List<?> objects = document.getXObjects(REPOSITORY_CLASS);
+            return objects != null && !objects.isEmpty();
+        }
+        return false;
+    }
+
+    private synchronized WikiRepositories getWikiRepositories(String wiki) throws QueryException
+    {
+        // The loaded repositories are never modified, only replaced, so they can be read outside of the lock
+        WikiRepositories repositories = this.wikis.get(wiki);
+        if (repositories == null) {
+            repositories = loadWikiRepositories(wiki);
+            this.wikis.put(wiki, repositories);
+        }
+        return repositories;
+    }
+
+    private WikiRepositories loadWikiRepositories(String wiki) throws QueryException
+    {
+        Query query = this.queries.createQuery(GitHubStatsQueries.REPOSITORY_URLS);
+        query.setWiki(wiki);
+        WikiRepositories repositories = new WikiRepositories();
+        for (Object[] repositoryData : query.<Object[]>execute()) {
+            GitHubRepository repository = new GitHubRepository((String) repositoryData[0], (String) repositoryData[1]);
+            String url = (String) repositoryData[2];
+            repositories.urls.put(repository, url);
+            repositories.byOrganization.computeIfAbsent(repository.getOrganizationId(),
+                key -> new LinkedHashMap<>()).put(repository, url);
+        }
+        return repositories;
+    }
+
+    private RepositoryPattern getPattern(String repositoryPattern)
+    {
+        RepositoryPattern pattern = this.patterns.get(repositoryPattern);
+        if (pattern == null) {
+            String[] tokens = StringUtils.split(StringUtils.trim(repositoryPattern), '/');
+            if (tokens == null || tokens.length != 2) {
+                return null;
+            }
+            pattern = new RepositoryPattern(tokens[0], tokens[1]);
+            if (this.patterns.size() < MAX_PATTERNS) {
+                this.patterns.put(repositoryPattern, pattern);
+            }
+        }
+        return pattern;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.URIish;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.contrib.githubstats.GitHubStatsException;
+import org.xwiki.contrib.githubstats.RepositoryFailure;
+
+/**
+ * Bounded worker pool used to clone/update and scan several Git repositories concurrently. The number of
+ * repositories fetched at the same time from a given Git host is limited so that the remote isn't overloaded, the
+ * local scans are not limited by host.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = RepositoryScanExecutor.class)
+@Singleton
+public class RepositoryScanExecutor implements Initializable, Disposable
+{
+    /**
+     * Clones or updates a single repository, executed in a pool thread while holding one of the connections allowed
+     * for the repository host.
+     */
+    @FunctionalInterface
+    public interface RepositoryFetcher
+    {
+        /**
+         * @param repository the repository to fetch
+         * @param uri the Git URI of the repository
+         * @return the local Git repository
+         * @throws Exception if the repository couldn't be fetched
+         */
+        Repository fetch(GitHubRepository repository, String uri) throws Exception;
+    }
+
+    /**
+     * Work to perform on a single fetched repository, executed in a pool thread.
+     *
+     * @param <T> the type of the work result
+     */
+    @FunctionalInterface
+    public interface RepositoryTask<T>
+    {
+        /**
+         * @param repository the repository to work on
+         * @param gitRepository the local Git repository
+         * @return the result of the work
+         * @throws Exception if the repository couldn't be scanned
+         */
+        T run(GitHubRepository repository, Repository gitRepository) throws Exception;
+    }
+
+    /**
+     * Consumes the result of a {@link RepositoryTask}. Always called from the thread that submitted the tasks, as soon
+     * as each repository has been processed.
+     *
+     * @param <T> the type of the work result
+     */
+    @FunctionalInterface
+    public interface RepositoryResultHandler<T>
+    {
+        /**
+         * @param repository the repository that has been processed
+         * @param result the result of the work
+         * @throws GitHubStatsException if the result couldn't be handled, which stops the execution
+         */
+        void handle(GitHubRepository repository, T result) throws GitHubStatsException;
+    }
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private GitHubStatsConfiguration configuration;
+
+    @Inject
+    private RepositoryFailureRegistry failureRegistry;
+
+    private ExecutorService executor;
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, this.configuration.getScanThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "GitHubStats repository scan " + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Fetch each repository, run the passed task on it and hand over the results as they become available.
+     * Repositories for which the fetch or the task fails are logged and skipped (a repository can fail to be
+     * cloned/updated, for example if it's empty). Failed repositories are then skipped without being fetched until
+     * their failure backoff expires.
+     *
+     * @param repositories the repositories to process, with their Git URIs
+     * @param fetcher clones or updates each repository
+     * @param task the work to perform on each fetched repository
+     * @param handler the consumer of the results, called in the current thread
+     * @param <T> the type of the work result
+     * @throws GitHubStatsException if the handler fails or if the current thread is interrupted
+     */
+    public <T> void execute(Map<GitHubRepository, String> repositories, RepositoryFetcher fetcher,
+        RepositoryTask<T> task, RepositoryResultHandler<T> handler) throws GitHubStatsException
+    {
+        CompletionService<T> completionService = new ExecutorCompletionService<>(this.executor);
+        Map<Future<T>, GitHubRepository> futures = new HashMap<>();
+        for (Map.Entry<GitHubRepository, String> entry : repositories.entrySet()) {
+            GitHubRepository repository = entry.getKey();
+            if (!this.failureRegistry.isAvailable(repository)) {
+                this.logger.debug("Skipping repository [{}/{}] which failed recently",
+                    repository.getOrganizationId(), repository.getRepositoryId());
+                continue;
+            }
+            String uri = entry.getValue();
+            Semaphore permits = getHostPermits(uri);
+            futures.put(completionService.submit(() -> {
+                Repository gitRepository;
+                // Only the fetch uses the remote host, the scan is local
+                permits.acquire();
+                try {
+                    gitRepository = fetcher.fetch(repository, uri);
+                } finally {
+                    permits.release();
+                }
+                return task.run(repository, gitRepository);
+            }), repository);
+        }
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Future<T> future = completionService.take();
+                GitHubRepository repository = futures.get(future);
+                T result;
+                try {
+                    result = future.get();
+                } catch (ExecutionException e) {
+                    RepositoryFailure failure = this.failureRegistry.recordFailure(repository, e.getCause());
+                    this.logger.warn("Failed to process repository [{}/{}], skipping it until [{}]. Reason: [{}]",
+                        repository.getOrganizationId(), repository.getRepositoryId(), failure.getRetryDate(),
+                        failure.getMessage());
+                    continue;
+                }
+                this.failureRegistry.recordSuccess(repository);
+                handler.handle(repository, result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitHubStatsException("Interrupted while processing Git repositories", e);
+        } finally {
+            cancel(futures.keySet());
+        }
+    }
+
+    private void cancel(Collection<? extends Future<?>> futures)
+    {
+        // No-op for the tasks that are already done
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private Semaphore getHostPermits(String uri)
+    {
+        return this.hostPermits.computeIfAbsent(getHost(uri),
+            host -> new Semaphore(Math.max(1, this.configuration.getMaxConnectionsPerHost())));
+    }
+
+    private String getHost(String uri)
+    {
+        try {
+            return StringUtils.defaultString(new URIish(uri).getHost());
+        } catch (URISyntaxException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.xwiki.contrib.githubstats.Author;
+import org.xwiki.contrib.githubstats.AuthorActivity;
+
+/**
+ * Commit activity found when walking (part of) the history of a Git repository, along with the commit at which the
+ * walk started.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class RepositoryScanResult
+{
+    private final String head;
+
+    private final Map<Author, AuthorActivity> activities;
+
+    private final boolean incremental;
+
+    /**
+     * @param head the id of the HEAD commit from which the history was walked, {@code null} for an empty repository
+     * @param activities the activity of each author of the walked commits
+     * @param incremental {@code true} if only the commits added since a previous scan were walked
+     */
+    public RepositoryScanResult(String head, Map<Author, AuthorActivity> activities, boolean incremental)
+    {
+        this.head = head;
+        this.activities = activities;
+        this.incremental = incremental;
+    }
+
+    /**
+     * @return the id of the HEAD commit from which the history was walked, {@code null} for an empty repository
+     */
+    public String getHead()
+    {
+        return this.head;
+    }
+
+    /**
+     * @return the activity of each author of the walked commits
+     */
+    public Map<Author, AuthorActivity> getActivities()
+    {
+        return this.activities;
+    }
+
+    /**
+     * @return the authors of the walked commits
+     */
+    public Set<Author> getAuthors()
+    {
+        return this.activities.keySet();
+    }
+
+    /**
+     * @return {@code true} if only the commits added since a previous scan were walked, {@code false} if the full
+     *         history was walked
+     */
+    public boolean isIncremental()
+    {
+        return this.incremental;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.githubstats.Author;
+import org.xwiki.contrib.githubstats.AuthorActivity;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+
+/**
+ * Walks (part of) the history of local Git repositories in a single pass to compute, for each author, the number of
+ * commits, the dates of the earliest and latest ones and the repositories they were made in.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = RepositoryScanner.class)
+@Singleton
+public class RepositoryScanner
+{
+    @Inject
+    private Logger logger;
+
+    /**
+     * Find the activity of the authors of the commits reachable from HEAD but not from the passed watermark commit.
+     *
+     * @param gitHubRepository the repository to scan
+     * @param repository the local Git repository
+     * @param watermark the id of the HEAD commit of the previous scan, or {@code null} to walk the full history. If
+     *        the commit cannot be found anymore (for example because the history has been rewritten) the full history
+     *        is walked
+     * @return the found activity and the HEAD commit to use as the watermark of the next scan
+     * @throws IOException if the repository cannot be read
+     */
+    public RepositoryScanResult scan(GitHubRepository gitHubRepository, Repository repository, String watermark)
+        throws IOException
+    {
+        ObjectId head = repository.resolve(Constants.HEAD);
+        if (head == null) {
+            // Empty repository
+            return new RepositoryScanResult(null, Collections.emptyMap(), false);
+        }
+
+        Map<Author, AuthorActivity> activities = new HashMap<>();
+        boolean incremental = false;
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.markStart(walk.parseCommit(head));
+            if (!StringUtils.isEmpty(watermark)) {
+                incremental = markUninteresting(walk, watermark);
+            }
+            walk(walk, gitHubRepository, activities);
+        }
+
+        return new RepositoryScanResult(head.name(), activities, incremental);
+    }
+
+    private void walk(RevWalk walk, GitHubRepository gitHubRepository, Map<Author, AuthorActivity> activities)
+    {
+        for (RevCommit commit : walk) {
+            PersonIdent personIdent = commit.getAuthorIdent();
+            AuthorActivity activity = activities.computeIfAbsent(
+                new Author(personIdent.getName(), personIdent.getEmailAddress()), author -> {
+                    AuthorActivity authorActivity = new AuthorActivity(author);
+                    authorActivity.getRepositories().add(gitHubRepository);
+                    return authorActivity;
+                });
+            long time = personIdent.getWhen().getTime();
+            activity.addCommits(1, time, time);
+        }
+    }
+
+    private boolean markUninteresting(RevWalk walk, String watermark) throws IOException
+    {
+        try {
+            walk.markUninteresting(walk.parseCommit(ObjectId.fromString(watermark)));
+            return true;
+        } catch (MissingObjectException | IncorrectObjectTypeException | IllegalArgumentException e) {
+            this.logger.debug("Watermark commit [{}] not found, walking the full history", watermark);
+            return false;
+        }
+    }
+}
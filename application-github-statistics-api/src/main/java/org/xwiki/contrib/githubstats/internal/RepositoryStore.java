@@ -0,0 +1,219 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.RefSpec;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.environment.Environment;
+import org.xwiki.git.GitManager;
+
+/**
+ * Provides up to date local copies of the GitHub repositories. By default full clones with a working tree are managed
+ * by the {@link GitManager}. Since only the commit metadata is needed to compute statistics, bare clones (no working
+ * tree and no checkout) can be used instead by setting {@code githubstats.git.bare=true} in {@code xwiki.properties}.
+ * Bare clones are stored in the {@code git-bare/(organization id)/(repository id)} directory of the permanent
+ * directory.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = RepositoryStore.class)
+@Singleton
+public class RepositoryStore implements Disposable
+{
+    private static final RefSpec BRANCHES_REFSPEC = new RefSpec("+refs/heads/*:refs/heads/*");
+
+    /**
+     * The directory in which the {@link GitManager} clones the repositories, relative to the permanent directory. The
+     * {@code DefaultGitManager} of the Git API 9.7 stores a repository passed with the {@code directoryName} name in
+     * {@code git/(directoryName)/.git}. It doesn't expose this location, so it must be kept in sync here when upgrading
+     * the Git API.
+     */
+    private static final String GIT_MANAGER_DIRECTORY = "git";
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private GitManager gitManager;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private GitHubStatsConfiguration configuration;
+
+    /**
+     * Opened local repositories, reused until the component is disposed.
+     */
+    private final Map<GitHubRepository, Repository> localRepositories = new ConcurrentHashMap<>();
+
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        for (Repository repository : this.localRepositories.values()) {
+            repository.close();
+        }
+    }
+
+    /**
+     * Clone the repository if it doesn't exist locally yet, otherwise fetch the new commits.
+     *
+     * @param repository the repository
+     * @param uri the Git URI of the repository
+     * @return the up to date local repository
+     */
+    public Repository getRepository(GitHubRepository repository, String uri)
+    {
+        if (this.configuration.isBareRepositoryStorage()) {
+            return getBareRepository(repository, uri);
+        } else {
+            // Don't fetch while the repository is being repacked
+            synchronized (getLock(getGitDirectory(repository))) {
+                return this.gitManager.getRepository(uri, getGitManagerName(repository));
+            }
+        }
+    }
+
+    /**
+     * Open the local copy of the repository, without fetching new commits.
+     *
+     * @param repository the repository
+     * @return the local repository or {@code null} if it hasn't been cloned yet
+     */
+    public Repository getLocalRepository(GitHubRepository repository)
+    {
+        Repository localRepository = this.localRepositories.get(repository);
+        if (localRepository == null) {
+            boolean bare = this.configuration.isBareRepositoryStorage();
+            File gitDirectory = getGitDirectory(repository);
+            synchronized (getLock(gitDirectory)) {
+                localRepository = this.localRepositories.get(repository);
+                if (localRepository == null && new File(gitDirectory, Constants.OBJECTS).isDirectory()) {
+                    try {
+                        FileRepositoryBuilder builder = new FileRepositoryBuilder().setGitDir(gitDirectory);
+                        localRepository = (bare ? builder.setBare() : builder).build();
+                        this.localRepositories.put(repository, localRepository);
+                    } catch (IOException e) {
+                        this.logger.warn("Failed to open local repository [{}]. Reason: [{}]", gitDirectory,
+                            ExceptionUtils.getRootCauseMessage(e));
+                    }
+                }
+            }
+        }
+        return localRepository;
+    }
+
+    private Repository getBareRepository(GitHubRepository repository, String uri)
+    {
+        File directory = getBareDirectory(repository);
+        // Don't fetch the same repository concurrently
+        synchronized (getLock(directory)) {
+            try {
+                Repository bareRepository = this.localRepositories.get(repository);
+                if (bareRepository == null && new File(directory, Constants.OBJECTS).isDirectory()) {
+                    bareRepository = new FileRepositoryBuilder().setGitDir(directory).setBare().build();
+                }
+                if (bareRepository == null) {
+                    this.logger.debug("Cloning bare repository [{}] into [{}]", uri, directory);
+                    try (Git git = Git.cloneRepository().setURI(uri).setDirectory(directory).setBare(true).call()) {
+                        bareRepository = new FileRepositoryBuilder().setGitDir(directory).setBare().build();
+                    }
+                } else {
+                    Git.wrap(bareRepository).fetch().setRemote(Constants.DEFAULT_REMOTE_NAME)
+                        .setRefSpecs(BRANCHES_REFSPEC).setRemoveDeletedRefs(true).call();
+                }
+                this.localRepositories.put(repository, bareRepository);
+                return bareRepository;
+            } catch (Exception e) {
+                throw new RuntimeException(String.format("Failed to clone or fetch bare repository [%s] into [%s]",
+                    uri, directory), e);
+            }
+        }
+    }
+
+    /**
+     * Repack the local copy of the repository into a single pack with a reachability bitmap, which keeps history walks
+     * fast as the number of small packs created by the incremental fetches grows. Fetches of the repository by this
+     * store, in both storage modes, wait for the repacking to finish and the other way around.
+     *
+     * @param repository the repository
+     * @return {@code false} if the repository hasn't been cloned yet, {@code true} otherwise
+     * @throws GitAPIException if the repository cannot be repacked
+     */
+    public boolean repack(GitHubRepository repository) throws GitAPIException
+    {
+        Repository localRepository = getLocalRepository(repository);
+        if (localRepository == null) {
+            return false;
+        }
+        synchronized (getLock(getGitDirectory(repository))) {
+            // Pack bitmaps are built by default
+            Git.wrap(localRepository).gc().call();
+        }
+        return true;
+    }
+
+    private File getGitDirectory(GitHubRepository repository)
+    {
+        if (this.configuration.isBareRepositoryStorage()) {
+            return getBareDirectory(repository);
+        } else {
+            return new File(new File(new File(this.environment.getPermanentDirectory(), GIT_MANAGER_DIRECTORY),
+                getGitManagerName(repository)), Constants.DOT_GIT);
+        }
+    }
+
+    private String getGitManagerName(GitHubRepository repository)
+    {
+        return repository.getOrganizationId() + File.separator + repository.getRepositoryId();
+    }
+
+    private File getBareDirectory(GitHubRepository repository)
+    {
+        return new File(new File(new File(this.environment.getPermanentDirectory(), "git-bare"),
+            repository.getOrganizationId()), repository.getRepositoryId());
+    }
+
+    private Object getLock(File directory)
+    {
+        return this.locks.computeIfAbsent(directory.getPath(), key -> new Object());
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.io.FileUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.contrib.githubstats.GitHubStatsException;
+import org.xwiki.environment.Environment;
+
+/**
+ * Remembers, per wiki and per repository, the HEAD commit up to which the repository history has been scanned for
+ * authors, so that the next author import only needs to walk the new commits. Stored in the permanent directory since
+ * it's tied to the local Git clones.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+@Component(roles = ScanWatermarkStore.class)
+@Singleton
+public class ScanWatermarkStore
+{
+    private static final String FILE_NAME = "watermarks.properties";
+
+    @Inject
+    private Environment environment;
+
+    /**
+     * @param wiki the wiki in which the authors have been imported
+     * @return the scan watermark (HEAD commit id) of each repository already scanned
+     * @throws GitHubStatsException if the store cannot be read
+     */
+    public synchronized Map<GitHubRepository, String> getWatermarks(String wiki) throws GitHubStatsException
+    {
+        Map<GitHubRepository, String> watermarks = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : load(wiki).entrySet()) {
+            String[] tokens = ((String) entry.getKey()).split("/", 2);
+            if (tokens.length == 2) {
+                watermarks.put(new GitHubRepository(tokens[0], tokens[1]), (String) entry.getValue());
+            }
+        }
+        return watermarks;
+    }
+
+    /**
+     * @param wiki the wiki in which the authors have been imported
+     * @param watermarks the new scan watermark (HEAD commit id) of the scanned repositories
+     * @throws GitHubStatsException if the store cannot be written
+     */
+    public synchronized void setWatermarks(String wiki, Map<GitHubRepository, String> watermarks)
+        throws GitHubStatsException
+    {
+        Properties properties = load(wiki);
+        for (Map.Entry<GitHubRepository, String> entry : watermarks.entrySet()) {
+            properties.setProperty(String.format("%s/%s", entry.getKey().getOrganizationId(),
+                entry.getKey().getRepositoryId()), entry.getValue());
+        }
+        File file = getFile(wiki);
+        try {
+            FileUtils.forceMkdir(file.getParentFile());
+            try (OutputStream output = new FileOutputStream(file)) {
+                properties.store(output, "Last scanned commit per repository");
+            }
+        } catch (IOException e) {
+            throw new GitHubStatsException(String.format("Failed to save scan watermarks in [%s]", file), e);
+        }
+    }
+
+    /**
+     * Forget all watermarks of the passed wiki so that the next import walks the full history again.
+     *
+     * @param wiki the wiki in which the authors have been imported
+     */
+    public synchronized void clear(String wiki)
+    {
+        FileUtils.deleteQuietly(getFile(wiki));
+    }
+
+    private Properties load(String wiki) throws GitHubStatsException
+    {
+        Properties properties = new Properties();
+        File file = getFile(wiki);
+        if (file.exists()) {
+            try (InputStream input = new FileInputStream(file)) {
+                properties.load(input);
+            } catch (IOException e) {
+                throw new GitHubStatsException(String.format("Failed to load scan watermarks from [%s]", file), e);
+            }
+        }
+        return properties;
+    }
+
+    private File getFile(String wiki)
+    {
+        return new File(new File(new File(this.environment.getPermanentDirectory(), "githubstats"), wiki), FILE_NAME);
+    }
+}
@@ -37,10 +37,13 @@ import org.kohsuke.github.GitHub;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.context.Execution;
 import org.xwiki.contrib.githubstats.Author;
+import org.xwiki.contrib.githubstats.AuthorActivity;
+import org.xwiki.contrib.githubstats.BulkDeletionStatus;
 import org.xwiki.contrib.githubstats.GitHubStatsManager;
 import org.xwiki.contrib.githubstats.GitHubFactory;
 import org.xwiki.contrib.githubstats.GitHubRepository;
 import org.xwiki.contrib.githubstats.GitHubStatsException;
+import org.xwiki.contrib.githubstats.RepositoryFailure;
 import org.xwiki.script.service.ScriptService;
 
 import com.xpn.xwiki.XWikiContext;
@@ -391,6 +394,50 @@ public class GitHubStatsScriptService implements ScriptService
         return result;
     }
 
+    public BulkDeletionStatus deleteRepositoriesInBackground(boolean skipRecycleBin)
+    {
+        BulkDeletionStatus result = null;
+        setError(null);
+        if (hasPermission()) {
+            try {
+                result = this.manager.deleteRepositoriesInBackground(skipRecycleBin);
+            } catch (Exception e) {
+                setError(e);
+            }
+        } else {
+            setError(new GitHubStatsException("User need to have Admin rights to delete imported repositories"));
+        }
+        return result;
+    }
+
+    public BulkDeletionStatus deleteAuthorsInBackground(boolean skipRecycleBin)
+    {
+        BulkDeletionStatus result = null;
+        setError(null);
+        if (hasPermission()) {
+            try {
+                result = this.manager.deleteAuthorsInBackground(skipRecycleBin);
+            } catch (Exception e) {
+                setError(e);
+            }
+        } else {
+            setError(new GitHubStatsException("User need to have Admin rights to delete imported authors"));
+        }
+        return result;
+    }
+
+    public BulkDeletionStatus getDeletionStatus()
+    {
+        BulkDeletionStatus result = null;
+        setError(null);
+        if (hasPermission()) {
+            result = this.manager.getDeletionStatus();
+        } else {
+            setError(new GitHubStatsException("User need to have Admin rights to get the status of a deletion"));
+        }
+        return result;
+    }
+
     public List<Repository> getRepositories(String repositoriesAsString)
     {
         setError(null);
@@ -403,12 +450,62 @@ public class GitHubStatsScriptService implements ScriptService
         }
     }
 
+    public Map<GitHubRepository, String> getRepositoryURLs(String repositoriesAsString)
+    {
+        setError(null);
+        try {
+            return this.manager.getRepositoryURLs(StringUtils.split(repositoriesAsString, ","));
+        } catch (Exception e) {
+            setError(e);
+            return null;
+        }
+    }
+
+    public List<AuthorActivity> getAuthorActivities(int since, Map<GitHubRepository, String> repositories)
+    {
+        setError(null);
+        try {
+            return this.manager.getAuthorActivities(since, repositories);
+        } catch (Exception e) {
+            setError(e);
+            return null;
+        }
+    }
+
+    public Collection<RepositoryFailure> getRepositoryFailures()
+    {
+        Collection<RepositoryFailure> result = null;
+        setError(null);
+        if (hasPermission()) {
+            result = this.manager.getRepositoryFailures();
+        } else {
+            setError(new GitHubStatsException("User need to have Admin rights to get repository failures"));
+        }
+        return result;
+    }
+
+    public void clearRepositoryFailures()
+    {
+        setError(null);
+        if (hasPermission()) {
+            this.manager.clearRepositoryFailures();
+        } else {
+            setError(new GitHubStatsException("User need to have Admin rights to clear repository failures"));
+        }
+    }
+
     public Map<String, Map<String, Object>> aggregateCommitsPerAuthor(UserCommitActivity[] userCommitActivity,
         Map<Author, Map<String, Object>> authors)
     {
         return this.manager.aggregateCommitsPerAuthor(userCommitActivity, authors);
     }
 
+    public Map<String, Map<String, Object>> aggregateCommitsPerAuthor(Collection<AuthorActivity> authorActivities,
+        Map<Author, Map<String, Object>> authors)
+    {
+        return this.manager.aggregateCommitsPerAuthor(authorActivities, authors);
+    }
+
     public Author buildAuthor(String authorId, String authorEmail)
     {
         return new Author(authorId, authorEmail);
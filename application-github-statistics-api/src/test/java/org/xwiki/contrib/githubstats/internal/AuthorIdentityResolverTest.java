@@ -0,0 +1,129 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.*;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.model.reference.DocumentReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link AuthorIdentityResolver}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class AuthorIdentityResolverTest
+{
+    private static final GitHubRepository REPOSITORY = new GitHubRepository("organization", "repository");
+
+    private AuthorRecord author(String id, String email, String name, String avatar,
+        Map<GitHubRepository, Boolean> repositories)
+    {
+        return new AuthorRecord(new DocumentReference("wiki", "GitHubStats", String.format("%s <%s>", id, email)), id,
+            email, name, avatar, null, null, repositories);
+    }
+
+    @Test
+    public void linkAuthorsTransitively()
+    {
+        // The GitHub author and the first author have the same email, the second author has the same name as the first
+        // one once filled
+        AuthorRecord github = author("jdoe", "jdoe@example.org", "John Doe", "avatar.png",
+            Collections.singletonMap(REPOSITORY, true));
+        AuthorRecord sameEmail =
+            author("john", "jdoe@example.org", null, null, Collections.singletonMap(REPOSITORY, false));
+        AuthorRecord sameName = author("doe", "doe@example.org", "John Doe", null, Collections.emptyMap());
+        AuthorRecord other = author("other", "other@example.org", "Other", null, Collections.emptyMap());
+
+        List<AuthorIdentityResolver.AuthorLink> links =
+            new AuthorIdentityResolver(Arrays.asList(github, sameEmail, sameName, other)).resolve();
+
+        assertEquals(2, links.size());
+        AuthorIdentityResolver.AuthorLink link = links.get(0);
+        assertEquals(sameEmail.getDocumentReference(), link.getDocumentReference());
+        assertEquals("jdoe", link.getLinkedAuthorId());
+        assertEquals("avatar.png", link.getFields().get("avatar"));
+        assertEquals("John Doe", link.getFields().get("name"));
+        assertEquals(Collections.singleton(REPOSITORY), link.getCommitterRepositories());
+
+        link = links.get(1);
+        assertEquals(sameName.getDocumentReference(), link.getDocumentReference());
+        assertEquals(Collections.singletonMap("avatar", "avatar.png"), link.getFields());
+        assertTrue(link.getCommitterRepositories().isEmpty());
+    }
+
+    @Test
+    public void linkIdMatchingName()
+    {
+        AuthorRecord github = author("jdoe", "jdoe@example.org", "John Doe", "avatar.png", Collections.emptyMap());
+        AuthorRecord idAsName = author("john", "john@example.org", "jdoe", null, Collections.emptyMap());
+
+        List<AuthorIdentityResolver.AuthorLink> links =
+            new AuthorIdentityResolver(Arrays.asList(idAsName, github)).resolve();
+
+        assertEquals(1, links.size());
+        assertEquals(idAsName.getDocumentReference(), links.get(0).getDocumentReference());
+        assertEquals(Collections.singletonMap("avatar", "avatar.png"), links.get(0).getFields());
+    }
+
+    @Test
+    public void propagateFromAuthorsWithoutAvatar()
+    {
+        // Once linked, the author without avatar gets one and its committer flag and company spread to the GitHub
+        // author
+        AuthorRecord github = author("jdoe", "jdoe@example.org", "John Doe", "avatar.png",
+            Collections.singletonMap(REPOSITORY, false));
+        AuthorRecord committer =
+            new AuthorRecord(new DocumentReference("wiki", "GitHubStats", "john <jdoe@example.org>"), "john",
+                "jdoe@example.org", null, null, "Acme", null, Collections.singletonMap(REPOSITORY, true));
+
+        List<AuthorIdentityResolver.AuthorLink> links =
+            new AuthorIdentityResolver(Arrays.asList(github, committer)).resolve();
+
+        assertEquals(2, links.size());
+        AuthorIdentityResolver.AuthorLink link = links.get(0);
+        assertEquals(github.getDocumentReference(), link.getDocumentReference());
+        assertEquals(Collections.singletonMap("company", "Acme"), link.getFields());
+        assertEquals(Collections.singleton(REPOSITORY), link.getCommitterRepositories());
+
+        link = links.get(1);
+        assertEquals(committer.getDocumentReference(), link.getDocumentReference());
+        assertEquals("avatar.png", link.getFields().get("avatar"));
+        assertEquals("John Doe", link.getFields().get("name"));
+        assertFalse(link.getFields().containsKey("company"));
+        assertTrue(link.getCommitterRepositories().isEmpty());
+    }
+
+    @Test
+    public void noLinkWithoutAvatar()
+    {
+        AuthorRecord first = author("jdoe", "jdoe@example.org", "John Doe", null, Collections.emptyMap());
+        AuthorRecord second = author("jdoe", "john@example.org", null, null, Collections.emptyMap());
+
+        assertTrue(new AuthorIdentityResolver(Arrays.asList(first, second)).resolve().isEmpty());
+    }
+}
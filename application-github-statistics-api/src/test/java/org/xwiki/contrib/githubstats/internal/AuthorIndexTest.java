@@ -0,0 +1,218 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.*;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.LargeStringProperty;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link AuthorIndex}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class AuthorIndexTest
+{
+    private static final GitHubRepository PLATFORM = new GitHubRepository("xwiki", "xwiki-platform");
+
+    private static final GitHubRepository COMMONS = new GitHubRepository("xwiki", "xwiki-commons");
+
+    private static final DocumentReference JDOE = new DocumentReference("wiki", "GitHubStats", "jdoe");
+
+    private static final DocumentReference JSMITH = new DocumentReference("wiki", "GitHubStats", "jsmith");
+
+    @Rule
+    public MockitoComponentMockingRule<AuthorIndex> mocker =
+        new MockitoComponentMockingRule<AuthorIndex>(AuthorIndex.class);
+
+    private Query authorsQuery;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        GitHubStatsQueries queries = this.mocker.getInstance(GitHubStatsQueries.class);
+        Query repositoriesQuery = mock(Query.class);
+        when(queries.createQuery(GitHubStatsQueries.AUTHOR_REPOSITORIES)).thenReturn(repositoriesQuery);
+        when(repositoriesQuery.execute()).thenReturn(Arrays.<Object>asList(
+            new Object[] {"GitHubStats.jdoe", "xwiki", "xwiki-platform", 1},
+            new Object[] {"GitHubStats.jdoe", "xwiki", "xwiki-commons", 0},
+            new Object[] {"GitHubStats.jsmith", "xwiki", "xwiki-platform", 0}));
+        this.authorsQuery = mock(Query.class);
+        when(queries.createQuery(GitHubStatsQueries.AUTHORS)).thenReturn(this.authorsQuery);
+        when(this.authorsQuery.execute()).thenReturn(Arrays.<Object>asList(
+            new Object[] {"GitHubStats.jdoe", 0, "id", "jdoe"},
+            new Object[] {"GitHubStats.jdoe", 0, "email", "jdoe@example.org"},
+            new Object[] {"GitHubStats.jdoe", 0, "name", "John Doe"},
+            new Object[] {"GitHubStats.jdoe", 0, "avatar", "avatar.png"},
+            new Object[] {"GitHubStats.jsmith", 0, "id", "jsmith"},
+            new Object[] {"GitHubStats.jsmith", 0, "email", "jsmith@example.org"},
+            new Object[] {"GitHubStats.jsmith", 0, "name", "John Smith"}));
+
+        DocumentReferenceResolver<String> currentResolver =
+            this.mocker.getInstance(DocumentReferenceResolver.TYPE_STRING, "current");
+        when(currentResolver.resolve("GitHubStats.jdoe", new WikiReference("wiki"))).thenReturn(JDOE);
+        when(currentResolver.resolve("GitHubStats.jsmith", new WikiReference("wiki"))).thenReturn(JSMITH);
+    }
+
+    @Test
+    public void buildIndex() throws Exception
+    {
+        AuthorIndex index = this.mocker.getComponentUnderTest();
+
+        assertEquals(2, index.getAuthors("wiki").size());
+        AuthorRecord author = index.getAuthorsById("wiki", "jdoe").get(0);
+        assertEquals(JDOE, author.getDocumentReference());
+        assertEquals("avatar.png", author.getAvatar());
+        assertEquals("", author.getCompany());
+        assertTrue(author.getRepositories().get(PLATFORM));
+        assertFalse(author.getRepositories().get(COMMONS));
+        assertEquals(JSMITH, index.getAuthorsByEmail("wiki", "jsmith@example.org").get(0).getDocumentReference());
+        assertEquals(JSMITH, index.getAuthorsByName("wiki", "John Smith").get(0).getDocumentReference());
+        assertTrue(index.getAuthorsByName("wiki", "").isEmpty());
+
+        Map<AuthorRecord, Boolean> members = index.getAuthorsByRepositories("wiki", Collections.singleton(COMMONS));
+        assertEquals(Collections.singletonMap(author, false), members);
+        members = index.getAuthorsByRepositories("wiki", Arrays.asList(PLATFORM, COMMONS));
+        assertEquals(2, members.size());
+        assertTrue(members.get(author));
+
+        // The index is built only once
+        verify(this.authorsQuery, times(1)).execute();
+    }
+
+    @Test
+    public void buildIndexWithAuthorsNotImportedFromGitHub() throws Exception
+    {
+        // Only the first AuthorClass xobject is used and the properties that have never been set have no row
+        when(this.authorsQuery.execute()).thenReturn(Arrays.<Object>asList(
+            new Object[] {"GitHubStats.jdoe", 0, "id", "jdoe"},
+            new Object[] {"GitHubStats.jdoe", 0, "email", "jdoe@example.org"},
+            new Object[] {"GitHubStats.jdoe", 1, "id", "other"},
+            new Object[] {"GitHubStats.jdoe", 1, "name", "Other"}));
+        AuthorIndex index = this.mocker.getComponentUnderTest();
+
+        assertEquals(1, index.getAuthors("wiki").size());
+        AuthorRecord author = index.getAuthorsByEmail("wiki", "jdoe@example.org").get(0);
+        assertEquals(JDOE, author.getDocumentReference());
+        assertEquals("jdoe", author.getId());
+        assertEquals("", author.getName());
+        assertEquals("", author.getAvatar());
+        assertEquals("", author.getProfileURL());
+        assertTrue(index.getAuthorsById("wiki", "other").isEmpty());
+        Map<AuthorRecord, Boolean> members = index.getAuthorsByRepositories("wiki", Collections.singleton(PLATFORM));
+        assertEquals(Collections.singletonMap(author, true), members);
+    }
+
+    @Test
+    public void updateAndRemove() throws Exception
+    {
+        AuthorIndex index = this.mocker.getComponentUnderTest();
+        index.getAuthors("wiki");
+
+        // The author changes email and stops contributing to xwiki-commons
+        index.update(authorDocument(JDOE, "jdoe", "john@example.org", "xwiki/xwiki-platform", ""));
+
+        assertTrue(index.getAuthorsByEmail("wiki", "jdoe@example.org").isEmpty());
+        assertEquals(JDOE, index.getAuthorsByEmail("wiki", "john@example.org").get(0).getDocumentReference());
+        assertEquals(1, index.getAuthorsById("wiki", "jdoe").size());
+        assertTrue(index.getAuthorsByRepositories("wiki", Collections.singleton(COMMONS)).isEmpty());
+        assertFalse(index.getAuthorsByRepositories("wiki", Collections.singleton(PLATFORM)).containsValue(true));
+
+        index.remove(JSMITH);
+
+        assertTrue(index.getAuthorsById("wiki", "jsmith").isEmpty());
+        assertTrue(index.getAuthorsByName("wiki", "John Smith").isEmpty());
+        Map<AuthorRecord, Boolean> members = index.getAuthorsByRepositories("wiki", Collections.singleton(PLATFORM));
+        assertEquals(1, members.size());
+        assertEquals(JDOE, members.keySet().iterator().next().getDocumentReference());
+
+        // A page that isn't an author page anymore is removed
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(JDOE);
+        index.update(document);
+
+        assertTrue(index.getAuthors("wiki").isEmpty());
+        verify(this.authorsQuery, times(1)).execute();
+    }
+
+    @Test
+    public void updateIgnoresWikiNotIndexed() throws Exception
+    {
+        AuthorIndex index = this.mocker.getComponentUnderTest();
+
+        index.update(authorDocument(new DocumentReference("other", "GitHubStats", "jdoe"), "jdoe", "jdoe@example.org",
+            "xwiki/xwiki-platform", ""));
+        index.remove(JDOE);
+
+        verify(this.authorsQuery, never()).execute();
+    }
+
+    @Test
+    public void invalidate() throws Exception
+    {
+        AuthorIndex index = this.mocker.getComponentUnderTest();
+        index.getAuthors("wiki");
+        index.update(authorDocument(new DocumentReference("wiki", "GitHubStats", "phantom"), "phantom",
+            "phantom@example.org", "", ""));
+        assertEquals(3, index.getAuthors("wiki").size());
+
+        index.invalidate("wiki");
+
+        // The index is built again from the stored pages
+        assertEquals(2, index.getAuthors("wiki").size());
+        assertTrue(index.getAuthorsById("wiki", "phantom").isEmpty());
+        verify(this.authorsQuery, times(2)).execute();
+    }
+
+    private XWikiDocument authorDocument(DocumentReference reference, String id, String email, String repositories,
+        String committerRepositories)
+    {
+        BaseObject authorObject = mock(BaseObject.class);
+        when(authorObject.getStringValue("id")).thenReturn(id);
+        when(authorObject.getStringValue("email")).thenReturn(email);
+        when(authorObject.get(AuthorRepositorySummary.REPOSITORIES)).thenReturn(mock(LargeStringProperty.class));
+        when(authorObject.getLargeStringValue(AuthorRepositorySummary.REPOSITORIES)).thenReturn(repositories);
+        when(authorObject.getLargeStringValue(AuthorRepositorySummary.COMMITTER_REPOSITORIES))
+            .thenReturn(committerRepositories);
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(reference);
+        List<BaseObject> authorObjects = Collections.singletonList(authorObject);
+        when(document.getXObjects(any(EntityReference.class))).thenReturn(authorObjects);
+        return document;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link AuthorLookup}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class AuthorLookupTest
+{
+    private static final long TTL = 1000;
+
+    private static final long NOW = 10000;
+
+    private final Map<String, AuthorLookup.Record> records = new HashMap<>();
+
+    @Test
+    public void searchEverythingWithoutRecords()
+    {
+        AuthorLookup lookup = createLookup("vmassol", "vincent@xwiki.com");
+
+        assertNull(lookup.getKnownLogin());
+        assertEquals(Arrays.asList(AuthorLookup.Strategy.values()), lookup.getPendingStrategies());
+        assertFalse(lookup.isKnownMiss());
+    }
+
+    @Test
+    public void skipKnownMisses()
+    {
+        record("login:vmassol", AuthorLookup.Outcome.AMBIGUOUS, null, NOW);
+        record("email:vincent@xwiki.com", AuthorLookup.Outcome.NOT_FOUND, null, NOW);
+        // Expired
+        record("fullname:vmassol", AuthorLookup.Outcome.NOT_FOUND, null, NOW - TTL);
+
+        AuthorLookup lookup = createLookup("vmassol", "vincent@xwiki.com");
+        assertEquals(Collections.singletonList(AuthorLookup.Strategy.FULLNAME), lookup.getPendingStrategies());
+
+        record("fullname:vmassol", AuthorLookup.Outcome.NOT_FOUND, null, NOW);
+        assertTrue(createLookup("vmassol", "vincent@xwiki.com").isKnownMiss());
+    }
+
+    @Test
+    public void reuseFoundLogin()
+    {
+        record("login:vmassol", AuthorLookup.Outcome.NOT_FOUND, null, NOW);
+        record("email:vincent@xwiki.com", AuthorLookup.Outcome.FOUND, "vmassol", NOW);
+
+        AuthorLookup lookup = createLookup("vmassol", "vincent@xwiki.com");
+        assertEquals("vmassol", lookup.getKnownLogin());
+        assertTrue(lookup.getPendingStrategies().isEmpty());
+        assertFalse(lookup.isKnownMiss());
+    }
+
+    @Test
+    public void searchAgainBeforeFoundLogin()
+    {
+        // A match of the login search would take precedence
+        record("email:vincent@xwiki.com", AuthorLookup.Outcome.FOUND, "vmassol", NOW);
+
+        AuthorLookup lookup = createLookup("vmassol", "vincent@xwiki.com");
+        assertNull(lookup.getKnownLogin());
+        assertEquals(Arrays.asList(AuthorLookup.Strategy.LOGIN, AuthorLookup.Strategy.EMAIL,
+            AuthorLookup.Strategy.FULLNAME), lookup.getPendingStrategies());
+    }
+
+    @Test
+    public void skipEmptyEmail()
+    {
+        AuthorLookup lookup = createLookup("vmassol", "");
+        assertEquals(Arrays.asList(AuthorLookup.Strategy.LOGIN, AuthorLookup.Strategy.FULLNAME),
+            lookup.getPendingStrategies());
+
+        lookup.record(AuthorLookup.Strategy.LOGIN, AuthorLookup.Outcome.FOUND, "vmassol", NOW);
+        lookup.record(AuthorLookup.Strategy.FULLNAME, AuthorLookup.Outcome.NOT_FOUND, "ignored", NOW);
+        assertEquals(2, lookup.getNewRecords().size());
+        assertEquals("vmassol", lookup.getNewRecords().get("login:vmassol").getLogin());
+        assertNull(lookup.getNewRecords().get("fullname:vmassol").getLogin());
+        assertEquals(AuthorLookup.Outcome.NOT_FOUND, lookup.getOutcome(AuthorLookup.Strategy.FULLNAME));
+    }
+
+    private void record(String key, AuthorLookup.Outcome outcome, String login, long date)
+    {
+        this.records.put(key, new AuthorLookup.Record(outcome, login, date));
+    }
+
+    private AuthorLookup createLookup(String id, String email)
+    {
+        return new AuthorLookup(new AuthorRecord(null, id, email, null, null, null, null,
+            Collections.emptyMap()), this.records, TTL, NOW);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.*;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link AuthorRepositorySummary}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class AuthorRepositorySummaryTest
+{
+    @Test
+    public void formatAndParse()
+    {
+        Map<GitHubRepository, Boolean> repositories = new HashMap<>();
+        repositories.put(new GitHubRepository("xwiki", "xwiki-platform"), true);
+        repositories.put(new GitHubRepository("xwiki", "xwiki-commons"), false);
+        repositories.put(new GitHubRepository("xwiki-contrib", "application-blog"), true);
+
+        AuthorRepositorySummary summary = new AuthorRepositorySummary(repositories);
+        assertEquals("xwiki-contrib/application-blog\nxwiki/xwiki-commons\nxwiki/xwiki-platform",
+            summary.getRepositories());
+        assertEquals("xwiki-contrib/application-blog\nxwiki/xwiki-platform", summary.getCommitterRepositories());
+
+        assertEquals(repositories,
+            AuthorRepositorySummary.parse(summary.getRepositories(), summary.getCommitterRepositories()));
+    }
+
+    @Test
+    public void parseEmptySummary()
+    {
+        assertTrue(AuthorRepositorySummary.parse("", null).isEmpty());
+        assertTrue(AuthorRepositorySummary.parse("invalid", "").isEmpty());
+    }
+
+    @Test
+    public void updateFromRepositoryObjects()
+    {
+        BaseObject authorObject = new BaseObject();
+        // Duplicate repository objects are merged, a repository is committed if any of its objects says so
+        assertTrue(AuthorRepositorySummary.update(authorObject, Arrays.asList(
+            createRepositoryObject("xwiki", "xwiki-platform", 0), null,
+            createRepositoryObject("xwiki", "xwiki-commons", 0),
+            createRepositoryObject("xwiki", "xwiki-platform", 1))));
+        assertEquals("xwiki/xwiki-commons\nxwiki/xwiki-platform",
+            authorObject.getLargeStringValue(AuthorRepositorySummary.REPOSITORIES));
+        assertEquals("xwiki/xwiki-platform",
+            authorObject.getLargeStringValue(AuthorRepositorySummary.COMMITTER_REPOSITORIES));
+
+        assertFalse(AuthorRepositorySummary.update(authorObject, Arrays.asList(
+            createRepositoryObject("xwiki", "xwiki-commons", 0),
+            createRepositoryObject("xwiki", "xwiki-platform", 1))));
+
+        // The repository objects have been removed, for example from the object editor
+        assertTrue(AuthorRepositorySummary.update(authorObject, null));
+        assertEquals("", authorObject.getLargeStringValue(AuthorRepositorySummary.REPOSITORIES));
+        assertEquals("", authorObject.getLargeStringValue(AuthorRepositorySummary.COMMITTER_REPOSITORIES));
+    }
+
+    private BaseObject createRepositoryObject(String organizationId, String repositoryId, int committer)
+    {
+        BaseObject repositoryObject = new BaseObject();
+        repositoryObject.setStringValue("organizationId", organizationId);
+        repositoryObject.setStringValue("repositoryId", repositoryId);
+        repositoryObject.setIntValue("committer", committer);
+        return repositoryObject;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import javax.inject.Provider;
+
+import org.junit.*;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.contrib.githubstats.BulkDeletionStatus;
+import org.xwiki.contrib.githubstats.GitHubStatsException;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.query.Query;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link BulkDocumentDeleter}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class BulkDocumentDeleterTest
+{
+    private static final EntityReference AUTHOR_CLASS = new EntityReference("AuthorClass", EntityType.DOCUMENT,
+        new EntityReference("GitHubStats", EntityType.SPACE));
+
+    @Rule
+    public MockitoComponentMockingRule<BulkDocumentDeleter> mocker =
+        new MockitoComponentMockingRule<BulkDocumentDeleter>(BulkDocumentDeleter.class);
+
+    private XWikiContext xcontext;
+
+    private XWiki xwiki;
+
+    private XWikiHibernateStore store;
+
+    private XWikiDocument[] documents = new XWikiDocument[3];
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.xcontext = mock(XWikiContext.class);
+        when(this.xcontext.getWikiId()).thenReturn("wiki");
+        this.xwiki = mock(XWiki.class);
+        when(this.xcontext.getWiki()).thenReturn(this.xwiki);
+        Provider<XWikiContext> xcontextProvider = this.mocker.getInstance(XWikiContext.TYPE_PROVIDER);
+        when(xcontextProvider.get()).thenReturn(this.xcontext);
+
+        this.store = mock(XWikiHibernateStore.class);
+        Provider<XWikiStoreInterface> storeProvider = this.mocker.getInstance(
+            new DefaultParameterizedType(null, Provider.class, XWikiStoreInterface.class), "hibernate");
+        when(storeProvider.get()).thenReturn(this.store);
+
+        GitHubStatsConfiguration configuration = this.mocker.getInstance(GitHubStatsConfiguration.class);
+        when(configuration.getImportBatchSize()).thenReturn(2);
+
+        Query query = mock(Query.class);
+        GitHubStatsQueries queries = this.mocker.getInstance(GitHubStatsQueries.class);
+        when(queries.createQuery(GitHubStatsQueries.DOCUMENTS_WITH_CLASS)).thenReturn(query);
+        when(query.execute()).thenReturn(Arrays.<Object>asList(new Object[] {"GitHubStats", "author0"},
+            new Object[] {"GitHubStats", "author1"}, new Object[] {"GitHubStats", "author2"}));
+        for (int i = 0; i < this.documents.length; i++) {
+            this.documents[i] = mock(XWikiDocument.class);
+            EntityReference reference = new EntityReference("author" + i, EntityType.DOCUMENT,
+                new EntityReference("GitHubStats", EntityType.SPACE));
+            when(this.xwiki.getDocument(reference, this.xcontext)).thenReturn(this.documents[i]);
+        }
+    }
+
+    @Test
+    public void deleteInGroups() throws Exception
+    {
+        BulkDeletionStatus status = this.mocker.getComponentUnderTest().start("authors", AUTHOR_CLASS, true);
+        assertEquals(3, status.getTotal());
+
+        status = waitForDeletion();
+
+        assertEquals(3, status.getDeleted());
+        assertEquals(0, status.getFailed());
+        assertNull(status.getMessage());
+        for (XWikiDocument document : this.documents) {
+            verify(this.xwiki).deleteDocument(document, false, this.xcontext);
+        }
+        verify(this.store, times(2)).endTransaction(this.xcontext, true);
+        verify(this.store, never()).endTransaction(this.xcontext, false);
+    }
+
+    @Test
+    public void deleteOneByOneAfterRollback() throws Exception
+    {
+        doThrow(new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+            XWikiException.ERROR_XWIKI_STORE_HIBERNATE_DELETING_DOC, "Failed to delete")).when(this.xwiki)
+            .deleteDocument(same(this.documents[1]), anyBoolean(), any(XWikiContext.class));
+
+        this.mocker.getComponentUnderTest().start("authors", AUTHOR_CLASS, false);
+        BulkDeletionStatus status = waitForDeletion();
+
+        assertEquals(2, status.getDeleted());
+        assertEquals(1, status.getFailed());
+        verify(this.store).endTransaction(this.xcontext, false);
+        // The indexes updated from the events of the rolled back deletions are invalidated
+        ObservationManager observationManager = this.mocker.getInstance(ObservationManager.class);
+        verify(observationManager).notify(any(DocumentStoreRollbackEvent.class), eq("wiki"));
+    }
+
+    @Test
+    public void startWhileRunning() throws Exception
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return null;
+        }).when(this.xwiki).deleteDocument(same(this.documents[0]), anyBoolean(), any(XWikiContext.class));
+        BulkDocumentDeleter deleter = this.mocker.getComponentUnderTest();
+        deleter.start("authors", AUTHOR_CLASS, true);
+        started.await();
+        assertTrue(deleter.isRunning("wiki", "authors"));
+        assertFalse(deleter.isRunning("wiki", "repositories"));
+        assertFalse(deleter.isRunning("other", "authors"));
+
+        try {
+            deleter.start("authors", AUTHOR_CLASS, true);
+            fail();
+        } catch (GitHubStatsException expected) {
+            assertEquals("A deletion of [authors] pages is already running in wiki [wiki]", expected.getMessage());
+        }
+
+        release.countDown();
+        assertEquals(3, waitForDeletion().getDeleted());
+        assertFalse(deleter.isRunning("wiki", "authors"));
+    }
+
+    @Test
+    public void completeBeforeFinished() throws Exception
+    {
+        BulkDocumentDeleter deleter = this.mocker.getComponentUnderTest();
+        boolean[] runningOnCompletion = new boolean[1];
+        deleter.start("authors", AUTHOR_CLASS, true, () -> {
+            // Still reported as running, so that nothing can be imported before the completion is done
+            runningOnCompletion[0] = deleter.isRunning("wiki", "authors");
+            throw new RuntimeException("Failed to complete");
+        });
+
+        BulkDeletionStatus status = waitForDeletion();
+
+        assertTrue(runningOnCompletion[0]);
+        assertEquals(3, status.getDeleted());
+        assertFalse(deleter.isRunning("wiki", "authors"));
+    }
+
+    private BulkDeletionStatus waitForDeletion() throws Exception
+    {
+        BulkDocumentDeleter deleter = this.mocker.getComponentUnderTest();
+        for (int i = 0; i < 500 && !deleter.getStatus("wiki").isFinished(); i++) {
+            Thread.sleep(10);
+        }
+        BulkDeletionStatus status = deleter.getStatus("wiki");
+        assertTrue(status.isFinished());
+        return status;
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import org.xwiki.contrib.githubstats.Author;
+import org.xwiki.contrib.githubstats.AuthorActivity;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.environment.Environment;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link CommitActivityIndex}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class CommitActivityIndexTest
+{
+    private static final GitHubRepository REPOSITORY = new GitHubRepository("organization", "repository");
+
+    private static final Author AUTHOR1 = new Author("author1", "author1@doe.com");
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Rule
+    public MockitoComponentMockingRule<CommitActivityIndex> mocker =
+        new MockitoComponentMockingRule<CommitActivityIndex>(CommitActivityIndex.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Git git;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.git = Git.init().setDirectory(this.folder.newFolder("repository")).call();
+        Environment environment = this.mocker.getInstance(Environment.class);
+        when(environment.getPermanentDirectory()).thenReturn(this.folder.newFolder("permanent"));
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.git.close();
+    }
+
+    @Test
+    public void getActivityOverFullHistory() throws Exception
+    {
+        commit("author1", "author1@doe.com", 1000L);
+        commit("author2", "author2@doe.com", 2000L);
+        commit("author1", "author1@doe.com", 3 * DAY);
+
+        RepositoryScanResult result =
+            this.mocker.getComponentUnderTest().getActivity(REPOSITORY, this.git.getRepository(), null);
+
+        assertEquals(2, result.getActivities().size());
+        AuthorActivity activity = result.getActivities().get(AUTHOR1);
+        assertEquals(2, activity.getCount());
+        assertEquals(new Date(1000L), activity.getEarliest());
+        assertEquals(new Date(3 * DAY), activity.getLatest());
+        assertTrue(activity.getRepositories().contains(REPOSITORY));
+        assertTrue(new File(this.folder.getRoot(), "permanent/githubstats/activity/organization/repository.index")
+            .exists());
+    }
+
+    @Test
+    public void getActivitySinceDate() throws Exception
+    {
+        commit("author1", "author1@doe.com", 1000L);
+        commit("author2", "author2@doe.com", 2000L);
+        commit("author1", "author1@doe.com", 3 * DAY + 1000L);
+
+        RepositoryScanResult result = this.mocker.getComponentUnderTest().getActivity(REPOSITORY,
+            this.git.getRepository(), new Date(2 * DAY));
+
+        assertEquals(1, result.getActivities().size());
+        AuthorActivity activity = result.getActivities().get(AUTHOR1);
+        assertEquals(1, activity.getCount());
+        assertEquals(new Date(3 * DAY + 1000L), activity.getEarliest());
+        assertEquals(new Date(3 * DAY + 1000L), activity.getLatest());
+    }
+
+    @Test
+    public void getActivitySinceExactTime() throws Exception
+    {
+        commit("author1", "author1@doe.com", DAY + 1000L);
+        commit("author1", "author1@doe.com", DAY + 3000L);
+
+        RepositoryScanResult result = this.mocker.getComponentUnderTest().getActivity(REPOSITORY,
+            this.git.getRepository(), new Date(DAY + 2000L));
+
+        // The commit made earlier the same day is not counted
+        AuthorActivity activity = result.getActivities().get(AUTHOR1);
+        assertEquals(1, activity.getCount());
+        assertEquals(new Date(DAY + 3000L), activity.getEarliest());
+    }
+
+    @Test
+    public void getActivitySinceDateUsesAuthorTime() throws Exception
+    {
+        // Rebased commits keep their author date but get a new commit date
+        commit("author1", "author1@doe.com", 1000L, 3 * DAY);
+        commit("author2", "author2@doe.com", 3 * DAY + 1000L, 3 * DAY + 1000L);
+
+        RepositoryScanResult result = this.mocker.getComponentUnderTest().getActivity(REPOSITORY,
+            this.git.getRepository(), new Date(2 * DAY));
+
+        assertEquals(1, result.getActivities().size());
+        assertNull(result.getActivities().get(AUTHOR1));
+        assertEquals(new Date(3 * DAY + 1000L),
+            result.getActivities().get(new Author("author2", "author2@doe.com")).getEarliest());
+    }
+
+    @Test
+    public void getActivityIndexesNewCommits() throws Exception
+    {
+        commit("author1", "author1@doe.com", 1000L);
+        CommitActivityIndex index = this.mocker.getComponentUnderTest();
+        RepositoryScanResult first = index.getActivity(REPOSITORY, this.git.getRepository(), null);
+
+        commit("author1", "author1@doe.com", 2000L);
+        RepositoryScanResult second = index.getActivity(REPOSITORY, this.git.getRepository(), null);
+
+        assertNotEquals(first.getHead(), second.getHead());
+        AuthorActivity activity = second.getActivities().get(AUTHOR1);
+        assertEquals(2, activity.getCount());
+        assertEquals(new Date(1000L), activity.getEarliest());
+        assertEquals(new Date(2000L), activity.getLatest());
+        // Previous results are not modified
+        assertEquals(1, first.getActivities().get(AUTHOR1).getCount());
+    }
+
+    @Test
+    public void getActivityAfterFailedUpdate() throws Exception
+    {
+        commit("author1", "author1@doe.com", 1000L);
+        CommitActivityIndex index = this.mocker.getComponentUnderTest();
+        index.getActivity(REPOSITORY, this.git.getRepository(), null);
+
+        String missingCommit = commit("author1", "author1@doe.com", 2000L);
+        commit("author1", "author1@doe.com", 3000L);
+        commit("author1", "author1@doe.com", 4000L);
+        // Hide a commit in the middle of the new ones so that the walk fails after indexing the latest one
+        File objects = new File(this.git.getRepository().getDirectory(), "objects");
+        File object = new File(new File(objects, missingCommit.substring(0, 2)), missingCommit.substring(2));
+        File hiddenObject = new File(object.getPath() + ".hidden");
+        assertTrue(object.renameTo(hiddenObject));
+        try {
+            index.getActivity(REPOSITORY, this.git.getRepository(), null);
+            fail();
+        } catch (IOException expected) {
+            // The index is left as it was
+        }
+        assertTrue(hiddenObject.renameTo(object));
+
+        RepositoryScanResult result = index.getActivity(REPOSITORY, this.git.getRepository(), null);
+
+        AuthorActivity activity = result.getActivities().get(AUTHOR1);
+        assertEquals(4, activity.getCount());
+        assertEquals(new Date(4000L), activity.getLatest());
+    }
+
+    @Test
+    public void getActivityOfEmptyRepository() throws Exception
+    {
+        RepositoryScanResult result =
+            this.mocker.getComponentUnderTest().getActivity(REPOSITORY, this.git.getRepository(), null);
+
+        assertNull(result.getHead());
+        assertTrue(result.getActivities().isEmpty());
+    }
+
+    @Test
+    public void getRepresentativeCommits() throws Exception
+    {
+        commit("author1", "author1@doe.com", 1000L);
+        String author2Commit = commit("author2", "author2@doe.com", 2000L);
+        String author1Commit = commit("author1", "author1@doe.com", 3000L);
+
+        Map<Author, String> commits =
+            this.mocker.getComponentUnderTest().getRepresentativeCommits(REPOSITORY, this.git.getRepository());
+
+        assertEquals(2, commits.size());
+        assertEquals(author1Commit, commits.get(AUTHOR1));
+        assertEquals(author2Commit, commits.get(new Author("author2", "author2@doe.com")));
+    }
+
+    private String commit(String name, String email, long time) throws Exception
+    {
+        return commit(name, email, time, time);
+    }
+
+    private String commit(String name, String email, long authorTime, long commitTime) throws Exception
+    {
+        File workTree = this.git.getRepository().getWorkTree();
+        FileUtils.write(new File(workTree, "file.txt"), String.valueOf(authorTime), "UTF-8");
+        this.git.add().addFilepattern("file.txt").call();
+        PersonIdent author = new PersonIdent(name, email, new Date(authorTime), TimeZone.getTimeZone("UTC"));
+        PersonIdent committer = new PersonIdent(name, email, new Date(commitTime), TimeZone.getTimeZone("UTC"));
+        return this.git.commit().setAuthor(author).setCommitter(committer).setMessage("commit").call().name();
+    }
+}
@@ -19,16 +19,22 @@
  */
 package org.xwiki.contrib.githubstats.internal;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.jgit.lib.Repository;
 import org.gitective.core.stat.UserCommitActivity;
 import org.junit.*;
 import org.xwiki.contrib.githubstats.Author;
+import org.xwiki.contrib.githubstats.AuthorActivity;
+import org.xwiki.contrib.githubstats.GitHubRepository;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 /**
  * Unit tests for {@link org.xwiki.contrib.githubstats.internal.DefaultGitHubStatsManager}.
@@ -97,6 +103,41 @@ public class DefaultGitHubStatsManagerTest
         assertTrue(relatedAuthors.contains(new Author("id2", "email1")));
     }
 
+    @Test
+    public void getAuthorActivitiesReadsLocalClonesDirectly() throws Exception
+    {
+        GitHubRepository clonedRepository = new GitHubRepository("xwiki", "xwiki-commons");
+        GitHubRepository newRepository = new GitHubRepository("xwiki", "xwiki-rendering");
+        Map<GitHubRepository, String> repositories = new HashMap<>();
+        repositories.put(clonedRepository, "https://github.com/xwiki/xwiki-commons.git");
+        repositories.put(newRepository, "https://github.com/xwiki/xwiki-rendering.git");
+
+        RepositoryRefreshScheduler refreshScheduler = this.mocker.getInstance(RepositoryRefreshScheduler.class);
+        when(refreshScheduler.isEnabled()).thenReturn(true);
+        RepositoryFailureRegistry failureRegistry = this.mocker.getInstance(RepositoryFailureRegistry.class);
+        when(failureRegistry.isAvailable(any(GitHubRepository.class))).thenReturn(true);
+        Repository localRepository = mock(Repository.class);
+        RepositoryStore repositoryStore = this.mocker.getInstance(RepositoryStore.class);
+        when(repositoryStore.getLocalRepository(clonedRepository)).thenReturn(localRepository);
+
+        Author author = new Author("name1", "email1");
+        AuthorActivity activity = new AuthorActivity(author);
+        activity.addCommits(3, 1000L, 2000L);
+        CommitActivityIndex activityIndex = this.mocker.getInstance(CommitActivityIndex.class);
+        when(activityIndex.getActivity(clonedRepository, localRepository, null))
+            .thenReturn(new RepositoryScanResult("head", Collections.singletonMap(author, activity), false));
+
+        List<AuthorActivity> activities = this.mocker.getComponentUnderTest().getAuthorActivities(0, repositories);
+
+        assertEquals(1, activities.size());
+        assertEquals(author, activities.get(0).getAuthor());
+        assertEquals(3, activities.get(0).getCount());
+        // Only the repository that hasn't been cloned yet goes through the scan threads
+        RepositoryScanExecutor scanExecutor = this.mocker.getInstance(RepositoryScanExecutor.class);
+        verify(scanExecutor).execute(eq(Collections.singletonMap(newRepository,
+            "https://github.com/xwiki/xwiki-rendering.git")), any(), any(), any());
+    }
+
     private void addAuthor(String id, String name, String email, String avatar, String company, boolean isCommitter,
         Map<Author, Map<String, Object>> authors)
     {
@@ -0,0 +1,135 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.*;
+import org.slf4j.Logger;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.ObservationManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link DocumentSaveBatch}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class DocumentSaveBatchTest
+{
+    private XWikiContext xcontext;
+
+    private XWiki xwiki;
+
+    private XWikiHibernateStore store;
+
+    private ObservationManager observationManager;
+
+    private DocumentSaveBatch batch;
+
+    @Before
+    public void setUp()
+    {
+        this.xcontext = mock(XWikiContext.class);
+        this.xwiki = mock(XWiki.class);
+        when(this.xcontext.getWiki()).thenReturn(this.xwiki);
+        when(this.xcontext.getWikiId()).thenReturn("wiki");
+        this.store = mock(XWikiHibernateStore.class);
+        this.observationManager = mock(ObservationManager.class);
+        this.batch = new DocumentSaveBatch(this.xcontext, this.store, 2, this.observationManager, mock(Logger.class));
+    }
+
+    @Test
+    public void saveInSingleTransaction() throws Exception
+    {
+        XWikiDocument first = document("first");
+        XWikiDocument second = document("second");
+        XWikiDocument third = document("third");
+
+        this.batch.save(first, "comment", "first");
+        // Saved only once, with the latest comment
+        this.batch.save(first, "new comment", "first");
+        assertNull(this.batch.getPendingDocument(second.getDocumentReference()));
+        this.batch.save(second, "comment", "second");
+        this.batch.save(third, "comment", "third");
+        assertSame(third, this.batch.getPendingDocument(third.getDocumentReference()));
+
+        verify(this.store).beginTransaction(this.xcontext);
+        verify(this.xwiki).saveDocument(first, "new comment", true, this.xcontext);
+        verify(this.xwiki, never()).saveDocument(first, "comment", true, this.xcontext);
+        verify(this.xwiki).saveDocument(second, "comment", true, this.xcontext);
+        verify(this.xwiki, never()).saveDocument(third, "comment", true, this.xcontext);
+        verify(this.store).endTransaction(this.xcontext, true);
+        assertEquals(Arrays.asList("first", "second"), this.batch.getSaved());
+
+        this.batch.flush();
+
+        verify(this.xwiki).saveDocument(third, "comment", true, this.xcontext);
+        verify(this.store, times(2)).endTransaction(this.xcontext, true);
+        verify(this.store, never()).endTransaction(this.xcontext, false);
+        assertEquals(Arrays.asList("first", "second", "third"), this.batch.getSaved());
+        assertEquals(0, this.batch.getFailedCount());
+    }
+
+    @Test
+    public void saveOneByOneAfterRollback() throws Exception
+    {
+        XWikiDocument first = document("first");
+        XWikiDocument firstCopy = first.clone();
+        XWikiDocument second = document("second");
+        XWikiDocument secondCopy = second.clone();
+        XWikiException error = new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+            XWikiException.ERROR_XWIKI_STORE_HIBERNATE_SAVING_DOC, "Failed to save");
+        doThrow(error).when(this.xwiki).saveDocument(second, "comment", true, this.xcontext);
+        doThrow(error).when(this.xwiki).saveDocument(secondCopy, "comment", true, this.xcontext);
+
+        this.batch.save(first, "comment", "first");
+        this.batch.save(second, "comment", "second");
+
+        verify(this.store).endTransaction(this.xcontext, false);
+        verify(this.observationManager).notify(any(DocumentStoreRollbackEvent.class), eq("wiki"));
+        // The documents modified by the rolled back saves are not saved again, their copies are
+        verify(this.xwiki, times(1)).saveDocument(first, "comment", true, this.xcontext);
+        verify(this.xwiki).saveDocument(firstCopy, "comment", true, this.xcontext);
+        verify(this.xwiki).saveDocument(secondCopy, "comment", true, this.xcontext);
+        assertEquals(Collections.singletonList("first"), this.batch.getSaved());
+        assertEquals(1, this.batch.getFailedCount());
+    }
+
+    private XWikiDocument document(String name)
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(new DocumentReference("wiki", "GitHubStats", name));
+        XWikiDocument copy = mock(XWikiDocument.class);
+        when(copy.getDocumentReference()).thenReturn(new DocumentReference("wiki", "GitHubStats", name));
+        when(document.clone()).thenReturn(copy);
+        return document;
+    }
+}
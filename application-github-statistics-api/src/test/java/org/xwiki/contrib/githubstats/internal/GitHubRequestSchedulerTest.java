@@ -0,0 +1,108 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+import org.kohsuke.github.GHException;
+import org.kohsuke.github.GHRateLimit;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.HttpException;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link GitHubRequestScheduler}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class GitHubRequestSchedulerTest
+{
+    private static final String URL = "https://api.github.com/users/xwiki";
+
+    @Rule
+    public MockitoComponentMockingRule<GitHubRequestScheduler> mocker =
+        new MockitoComponentMockingRule<GitHubRequestScheduler>(GitHubRequestScheduler.class);
+
+    private GitHub gitHub;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.gitHub = mock(GitHub.class);
+    }
+
+    @Test
+    public void isRateLimitError() throws Exception
+    {
+        GitHubRequestScheduler scheduler = this.mocker.getComponentUnderTest();
+
+        assertTrue(scheduler.isRateLimitError(
+            new HttpException("API rate limit exceeded for 127.0.0.1.", 403, "Forbidden", URL)));
+        assertTrue(scheduler.isRateLimitError(new GHException("Failed to retrieve " + URL,
+            new IOException("API rate limit reached"))));
+        assertFalse(scheduler.isRateLimitError(new HttpException("Not Found", 404, "Not Found", URL)));
+        assertFalse(scheduler.isRateLimitError(new IOException("Connection reset")));
+    }
+
+    @Test
+    public void executeRetriesOnceTheRateLimitIsReset() throws Exception
+    {
+        GHRateLimit rateLimit = new GHRateLimit();
+        rateLimit.limit = 5000;
+        rateLimit.remaining = 1000;
+        rateLimit.reset = new Date(System.currentTimeMillis());
+        when(this.gitHub.lastRateLimit()).thenReturn(rateLimit);
+
+        AtomicInteger calls = new AtomicInteger();
+        String result = this.mocker.getComponentUnderTest().execute(this.gitHub, GitHubRequestScheduler.Budget.CORE,
+            () -> {
+                if (calls.incrementAndGet() == 1) {
+                    throw new HttpException("API rate limit exceeded", 403, "Forbidden", URL);
+                }
+                return "xwiki";
+            });
+
+        assertEquals("xwiki", result);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void executeUnwrapsOtherFailures() throws Exception
+    {
+        IOException failure = new HttpException("Not Found", 404, "Not Found", URL);
+        try {
+            this.mocker.getComponentUnderTest().execute(this.gitHub, GitHubRequestScheduler.Budget.SEARCH, () -> {
+                // Thrown by the paged iterables
+                throw new GHException("Failed to retrieve " + URL, failure);
+            });
+            fail("The failure should have been rethrown");
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+        verify(this.gitHub, never()).lastRateLimit();
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.*;
+import org.kohsuke.github.GitHub;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link GitHubUserResolver}, against a local stand-in of the GitHub GraphQL endpoint.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class GitHubUserResolverTest
+{
+    private static final String RESPONSE = "{\"data\": {"
+        + "\"a0login\": {\"userCount\": 2, \"nodes\": [{\"login\": \"vmassol\"}]},"
+        + "\"a0email\": {\"userCount\": 1, \"nodes\": [{\"login\": \"vmassol\", \"name\": \"Vincent Massol\","
+        + " \"email\": \"vincent@xwiki.com\", \"avatarUrl\": \"avatar\", \"company\": \"XWiki SAS\","
+        + " \"url\": \"https://github.com/vmassol\"}]},"
+        + "\"a0fullname\": {\"userCount\": 0, \"nodes\": []},"
+        + "\"a1login\": {\"userCount\": 0, \"nodes\": []},"
+        + "\"a1fullname\": {\"userCount\": 3, \"nodes\": [{\"login\": \"unknown\"}]},"
+        + "\"a2user\": {\"login\": \"mflorea\", \"name\": \"Marius Dumitru Florea\"},"
+        + "\"rateLimit\": {\"remaining\": 4999, \"resetAt\": \"2030-01-01T00:00:00Z\"}}}";
+
+    @Rule
+    public MockitoComponentMockingRule<GitHubUserResolver> mocker =
+        new MockitoComponentMockingRule<GitHubUserResolver>(GitHubUserResolver.class);
+
+    private HttpServer server;
+
+    private String request;
+
+    private String response = RESPONSE;
+
+    private String authorization;
+
+    private GitHub gitHub;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/graphql", exchange -> {
+            this.request = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+            this.authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            byte[] response = this.response.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(response);
+            }
+        });
+        this.server.start();
+
+        this.gitHub = mock(GitHub.class);
+        when(this.gitHub.getApiUrl()).thenReturn("http://localhost:" + this.server.getAddress().getPort());
+
+        GitHubRequestScheduler scheduler = this.mocker.getInstance(GitHubRequestScheduler.class);
+        when(scheduler.execute(same(this.gitHub), eq(GitHubRequestScheduler.Budget.GRAPHQL),
+            any(GitHubRequestScheduler.GitHubCall.class))).thenAnswer(
+                invocation -> ((GitHubRequestScheduler.GitHubCall<?>) invocation.getArguments()[2]).call());
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void resolve() throws Exception
+    {
+        GitHubUserResolver resolver = this.mocker.getComponentUnderTest();
+        assertFalse(resolver.canResolve(this.gitHub));
+        resolver.register(this.gitHub, "token");
+        assertTrue(resolver.canResolve(this.gitHub));
+
+        // The login of the last author has been found by a previous search
+        AuthorLookup.Record found = new AuthorLookup.Record(AuthorLookup.Outcome.FOUND, "mflorea", 0);
+        List<AuthorLookup> lookups = Arrays.asList(new AuthorLookup(createAuthor("vmassol", "vincent@xwiki.com")),
+            new AuthorLookup(createAuthor("Gabriela", "")), new AuthorLookup(createAuthor("Marius", ""),
+                Collections.singletonMap("login:Marius", found), 1000, 0));
+        resolver.resolve(this.gitHub, lookups);
+
+        GitHubUserProfile user = lookups.get(0).getUser();
+        assertEquals("vmassol", user.getLogin());
+        assertEquals("Vincent Massol", user.getName());
+        assertEquals("avatar", user.getAvatarURL());
+        assertEquals("XWiki SAS", user.getCompany());
+        assertEquals("https://github.com/vmassol", user.getProfileURL());
+        assertEquals(AuthorLookup.Outcome.AMBIGUOUS, lookups.get(0).getOutcome(AuthorLookup.Strategy.LOGIN));
+        assertEquals(AuthorLookup.Outcome.FOUND, lookups.get(0).getOutcome(AuthorLookup.Strategy.EMAIL));
+        assertEquals("vmassol", lookups.get(0).getNewRecords().get("email:vincent@xwiki.com").getLogin());
+        // Neither the login nor the full name match a single user, and there's no email to search for
+        assertNull(lookups.get(1).getUser());
+        assertEquals(AuthorLookup.Outcome.NOT_FOUND, lookups.get(1).getOutcome(AuthorLookup.Strategy.LOGIN));
+        assertNull(lookups.get(1).getOutcome(AuthorLookup.Strategy.EMAIL));
+        assertEquals("Marius Dumitru Florea", lookups.get(2).getUser().getName());
+        assertTrue(lookups.get(2).getNewRecords().isEmpty());
+
+        // A single query for all the authors
+        assertEquals("bearer token", this.authorization);
+        assertTrue(this.request.contains("\"a0email\":\"\\\"vincent@xwiki.com\\\" in:email type:user\""));
+        assertTrue(this.request.contains("\"a1fullname\":\"\\\"Gabriela\\\" in:fullname type:user\""));
+        assertFalse(this.request.contains("a1email"));
+        assertTrue(this.request.contains("\"a2user\":\"mflorea\""));
+        assertFalse(this.request.contains("a2login"));
+
+        verify(this.mocker.getInstance(GitHubRequestScheduler.class)).recordGraphQLRateLimit(this.gitHub, 4999,
+            new Date(1893456000000L));
+    }
+
+    @Test
+    public void resolveCommitAuthors() throws Exception
+    {
+        this.response = "{\"data\": {\"repository\": {"
+            + "\"a0commit\": {\"author\": {\"user\": {\"login\": \"vmassol\", \"name\": \"Vincent Massol\"}}},"
+            + "\"a1commit\": {\"author\": {\"user\": null}}}}}";
+        GitHubUserResolver resolver = this.mocker.getComponentUnderTest();
+        resolver.register(this.gitHub, "token");
+
+        Map<String, String> commits = new LinkedHashMap<>();
+        commits.put("vmassol", "0123456789abcdef0123456789abcdef01234567");
+        commits.put("bot", "89abcdef0123456789abcdef0123456789abcdef");
+        Map<String, GitHubUserProfile> users =
+            resolver.resolveCommitAuthors(this.gitHub, new GitHubRepository("xwiki", "xwiki-platform"), commits);
+
+        // The commit of the bot isn't associated with a GitHub user
+        assertEquals(Collections.singleton("vmassol"), users.keySet());
+        assertEquals("Vincent Massol", users.get("vmassol").getName());
+        assertTrue(this.request.contains("a1commit: object(oid: \\\"89abcdef0123456789abcdef0123456789abcdef\\\")"));
+        assertTrue(this.request.contains("\"variables\":{\"owner\":\"xwiki\",\"name\":\"xwiki-platform\"}"));
+    }
+
+    private AuthorRecord createAuthor(String id, String email)
+    {
+        return new AuthorRecord(null, id, email, null, null, null, null, Collections.emptyMap());
+    }
+}
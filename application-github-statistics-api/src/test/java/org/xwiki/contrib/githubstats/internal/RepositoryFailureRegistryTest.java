@@ -0,0 +1,86 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.IOException;
+
+import org.junit.*;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.contrib.githubstats.RepositoryFailure;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link RepositoryFailureRegistry}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class RepositoryFailureRegistryTest
+{
+    private static final GitHubRepository REPOSITORY = new GitHubRepository("organization", "repository");
+
+    @Rule
+    public MockitoComponentMockingRule<RepositoryFailureRegistry> mocker =
+        new MockitoComponentMockingRule<RepositoryFailureRegistry>(RepositoryFailureRegistry.class);
+
+    @Before
+    public void setUp() throws Exception
+    {
+        GitHubStatsConfiguration configuration = this.mocker.getInstance(GitHubStatsConfiguration.class);
+        when(configuration.getFailureBackoff()).thenReturn(60);
+        when(configuration.getMaxFailureBackoff()).thenReturn(150);
+    }
+
+    @Test
+    public void backoffDoublesUpToMaximum() throws Exception
+    {
+        RepositoryFailureRegistry registry = this.mocker.getComponentUnderTest();
+        assertTrue(registry.isAvailable(REPOSITORY));
+
+        RepositoryFailure failure = registry.recordFailure(REPOSITORY, new IOException("unreachable"));
+        assertFalse(registry.isAvailable(REPOSITORY));
+        assertEquals(1, failure.getCount());
+        assertEquals("IOException: unreachable", failure.getMessage());
+        assertEquals(60000L, failure.getRetryDate().getTime() - failure.getLastFailure().getTime());
+
+        failure = registry.recordFailure(REPOSITORY, new IOException("unreachable"));
+        assertEquals(2, failure.getCount());
+        assertEquals(120000L, failure.getRetryDate().getTime() - failure.getLastFailure().getTime());
+
+        failure = registry.recordFailure(REPOSITORY, new IOException("unreachable"));
+        assertEquals(150000L, failure.getRetryDate().getTime() - failure.getLastFailure().getTime());
+        assertEquals(1, registry.getFailures().size());
+    }
+
+    @Test
+    public void successResetsFailures() throws Exception
+    {
+        RepositoryFailureRegistry registry = this.mocker.getComponentUnderTest();
+        registry.recordFailure(REPOSITORY, new IOException("unreachable"));
+
+        registry.recordSuccess(REPOSITORY);
+
+        assertTrue(registry.isAvailable(REPOSITORY));
+        assertTrue(registry.getFailures().isEmpty());
+    }
+}
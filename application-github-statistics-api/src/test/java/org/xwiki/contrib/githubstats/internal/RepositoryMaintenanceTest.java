@@ -0,0 +1,116 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Arrays;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.JGitInternalException;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link RepositoryMaintenance}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class RepositoryMaintenanceTest
+{
+    private static final GitHubRepository PLATFORM = new GitHubRepository("xwiki", "xwiki-platform");
+
+    private static final GitHubRepository COMMONS = new GitHubRepository("xwiki", "xwiki-commons");
+
+    private static final GitHubRepository RENDERING = new GitHubRepository("xwiki", "xwiki-rendering");
+
+    @Rule
+    public MockitoComponentMockingRule<RepositoryMaintenance> mocker =
+        new MockitoComponentMockingRule<RepositoryMaintenance>(RepositoryMaintenance.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RepositoryStore repositoryStore;
+
+    private Git git;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.git = Git.init().setDirectory(this.folder.newFolder("repository")).call();
+        this.git.commit().setMessage("commit").call();
+        this.repositoryStore = this.mocker.getInstance(RepositoryStore.class);
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.git.close();
+    }
+
+    @Test
+    public void repackClonedRepositories() throws Exception
+    {
+        when(this.repositoryStore.getLocalRepository(PLATFORM)).thenReturn(this.git.getRepository());
+        when(this.repositoryStore.repack(PLATFORM)).thenReturn(true);
+
+        this.mocker.getComponentUnderTest().maintain(Arrays.asList(PLATFORM, COMMONS));
+
+        verify(this.repositoryStore).repack(PLATFORM);
+        // Not cloned yet
+        verify(this.repositoryStore, never()).repack(COMMONS);
+    }
+
+    @Test
+    public void continueAfterFailure() throws Exception
+    {
+        when(this.repositoryStore.getLocalRepository(any(GitHubRepository.class))).thenReturn(this.git.getRepository());
+        when(this.repositoryStore.repack(PLATFORM)).thenThrow(new JGitInternalException("Failed to repack"));
+
+        this.mocker.getComponentUnderTest().maintain(Arrays.asList(PLATFORM, COMMONS));
+
+        verify(this.repositoryStore).repack(COMMONS);
+    }
+
+    @Test
+    public void stopWhenInterrupted() throws Exception
+    {
+        when(this.repositoryStore.getLocalRepository(any(GitHubRepository.class))).thenReturn(this.git.getRepository());
+        when(this.repositoryStore.repack(PLATFORM)).thenAnswer(invocation -> {
+            Thread.currentThread().interrupt();
+            return true;
+        });
+
+        try {
+            this.mocker.getComponentUnderTest().maintain(Arrays.asList(PLATFORM, COMMONS, RENDERING));
+        } finally {
+            // Clear the interrupted flag
+            Thread.interrupted();
+        }
+
+        verify(this.repositoryStore, never()).repack(COMMONS);
+        verify(this.repositoryStore, never()).repack(RENDERING);
+        verify(this.repositoryStore, never()).getLocalRepository(RENDERING);
+    }
+}
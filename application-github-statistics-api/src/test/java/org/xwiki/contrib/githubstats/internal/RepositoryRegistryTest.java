@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.*;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.query.Query;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link RepositoryRegistry}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class RepositoryRegistryTest
+{
+    private static final GitHubRepository PLATFORM = new GitHubRepository("xwiki", "xwiki-platform");
+
+    private static final GitHubRepository COMMONS = new GitHubRepository("xwiki", "xwiki-commons");
+
+    private static final GitHubRepository APPLICATION = new GitHubRepository("xwiki-contrib", "application-blog");
+
+    @Rule
+    public MockitoComponentMockingRule<RepositoryRegistry> mocker =
+        new MockitoComponentMockingRule<RepositoryRegistry>(RepositoryRegistry.class);
+
+    private Query query;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.query = mock(Query.class);
+        GitHubStatsQueries queries = this.mocker.getInstance(GitHubStatsQueries.class);
+        when(queries.createQuery(GitHubStatsQueries.REPOSITORY_URLS)).thenReturn(this.query);
+        when(this.query.execute()).thenReturn(Arrays.<Object>asList(
+            new Object[] {"xwiki", "xwiki-platform", "https://github.com/xwiki/xwiki-platform.git"},
+            new Object[] {"xwiki", "xwiki-commons", "https://github.com/xwiki/xwiki-commons.git"},
+            new Object[] {"xwiki-contrib", "application-blog",
+                "https://github.com/xwiki-contrib/application-blog.git"}));
+    }
+
+    @Test
+    public void getRepositoriesMatchingPatterns() throws Exception
+    {
+        RepositoryRegistry registry = this.mocker.getComponentUnderTest();
+
+        Map<GitHubRepository, String> repositories = registry.getRepositories("wiki", "xwiki/*");
+        assertEquals(2, repositories.size());
+        assertEquals("https://github.com/xwiki/xwiki-platform.git", repositories.get(PLATFORM));
+        assertTrue(repositories.containsKey(COMMONS));
+
+        assertEquals(Collections.singleton(APPLICATION),
+            registry.getRepositories("wiki", "xwiki-contrib/application-*", "unknown/*", "invalid").keySet());
+        assertEquals(Collections.singleton(COMMONS),
+            registry.getRepositories("wiki", "xwiki/xwiki-commons").keySet());
+        assertEquals(3, registry.getRepositories("wiki", "*/*").size());
+        assertEquals(Collections.singleton(PLATFORM),
+            registry.getRepositories("wiki", Arrays.asList(PLATFORM, new GitHubRepository("xwiki", "other"))).keySet());
+
+        // The repositories are loaded only once
+        verify(this.query, times(1)).execute();
+    }
+
+    @Test
+    public void invalidateWhenRepositoryPageIsModified() throws Exception
+    {
+        RepositoryRegistry registry = this.mocker.getComponentUnderTest();
+        registry.getRepositories("wiki");
+
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(new DocumentReference("wiki", "GitHubStats", "Other"));
+        registry.invalidate(document);
+        registry.getRepositories("wiki");
+        verify(this.query, times(1)).execute();
+
+        when(document.getXObjects(any(EntityReference.class)))
+            .thenReturn(Collections.singletonList(mock(BaseObject.class)));
+        registry.invalidate(document);
+        registry.getRepositories("wiki");
+        verify(this.query, times(2)).execute();
+    }
+
+    @Test
+    public void invalidateWiki() throws Exception
+    {
+        RepositoryRegistry registry = this.mocker.getComponentUnderTest();
+        registry.getRepositories("wiki");
+
+        registry.invalidate("other");
+        registry.getRepositories("wiki");
+        verify(this.query, times(1)).execute();
+
+        registry.invalidate("wiki");
+        registry.getRepositories("wiki");
+        verify(this.query, times(2)).execute();
+    }
+}
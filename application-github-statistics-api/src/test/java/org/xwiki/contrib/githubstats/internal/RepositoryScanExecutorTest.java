@@ -0,0 +1,139 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.Repository;
+import org.junit.*;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.contrib.githubstats.RepositoryFailure;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link RepositoryScanExecutor}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class RepositoryScanExecutorTest
+{
+    private static final GitHubRepository PLATFORM = new GitHubRepository("xwiki", "xwiki-platform");
+
+    private static final GitHubRepository COMMONS = new GitHubRepository("xwiki", "xwiki-commons");
+
+    @Rule
+    public MockitoComponentMockingRule<RepositoryScanExecutor> mocker =
+        new MockitoComponentMockingRule<RepositoryScanExecutor>(RepositoryScanExecutor.class);
+
+    private RepositoryFailureRegistry failureRegistry;
+
+    private Map<GitHubRepository, String> repositories = new LinkedHashMap<>();
+
+    private Repository gitRepository = mock(Repository.class);
+
+    @Before
+    public void setUp() throws Exception
+    {
+        GitHubStatsConfiguration configuration = this.mocker.getInstance(GitHubStatsConfiguration.class);
+        when(configuration.getScanThreads()).thenReturn(2);
+        when(configuration.getMaxConnectionsPerHost()).thenReturn(1);
+        this.failureRegistry = this.mocker.getInstance(RepositoryFailureRegistry.class);
+        when(this.failureRegistry.isAvailable(PLATFORM)).thenReturn(true);
+        when(this.failureRegistry.isAvailable(COMMONS)).thenReturn(true);
+
+        this.repositories.put(PLATFORM, "https://github.com/xwiki/xwiki-platform.git");
+        this.repositories.put(COMMONS, "https://github.com/xwiki/xwiki-commons.git");
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        this.mocker.getComponentUnderTest().dispose();
+    }
+
+    @Test
+    public void executeAndRecordFailures() throws Exception
+    {
+        IOException error = new IOException("unreachable");
+        when(this.failureRegistry.recordFailure(COMMONS, error))
+            .thenReturn(new RepositoryFailure(COMMONS, 1, 0L, 60000L, "IOException: unreachable"));
+        List<GitHubRepository> handled = new ArrayList<>();
+
+        this.mocker.getComponentUnderTest().execute(this.repositories, (repository, uri) -> {
+            if (repository.equals(COMMONS)) {
+                throw error;
+            }
+            return this.gitRepository;
+        }, (repository, gitRepository) -> {
+            assertSame(this.gitRepository, gitRepository);
+            return repository.getRepositoryId();
+        }, (repository, result) -> {
+            assertEquals(repository.getRepositoryId(), result);
+            handled.add(repository);
+        });
+
+        assertEquals(Collections.singletonList(PLATFORM), handled);
+        verify(this.failureRegistry).recordSuccess(PLATFORM);
+        verify(this.failureRegistry).recordFailure(COMMONS, error);
+    }
+
+    @Test
+    public void skipRecentlyFailedRepositories() throws Exception
+    {
+        when(this.failureRegistry.isAvailable(COMMONS)).thenReturn(false);
+        List<GitHubRepository> fetched = Collections.synchronizedList(new ArrayList<>());
+
+        this.mocker.getComponentUnderTest().execute(this.repositories, (repository, uri) -> {
+            fetched.add(repository);
+            return this.gitRepository;
+        }, (repository, gitRepository) -> repository, (repository, result) -> {
+        });
+
+        assertEquals(Collections.singletonList(PLATFORM), fetched);
+    }
+
+    @Test
+    public void releaseHostConnectionBeforeScan() throws Exception
+    {
+        // A single connection is allowed for github.com: the second repository can only be fetched while the first one
+        // is being scanned if the connection is released once the first one has been fetched
+        CountDownLatch fetched = new CountDownLatch(2);
+        List<Boolean> scans = Collections.synchronizedList(new ArrayList<>());
+
+        this.mocker.getComponentUnderTest().execute(this.repositories, (repository, uri) -> {
+            fetched.countDown();
+            return this.gitRepository;
+        }, (repository, gitRepository) -> scans.add(fetched.await(5, TimeUnit.SECONDS)), (repository, result) -> {
+        });
+
+        assertEquals(Collections.nCopies(2, true), scans);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.File;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import org.xwiki.contrib.githubstats.Author;
+import org.xwiki.contrib.githubstats.AuthorActivity;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link RepositoryScanner}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class RepositoryScannerTest
+{
+    private static final GitHubRepository REPOSITORY = new GitHubRepository("organization", "repository");
+
+    @Rule
+    public MockitoComponentMockingRule<RepositoryScanner> mocker =
+        new MockitoComponentMockingRule<RepositoryScanner>(RepositoryScanner.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Git git;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.git = Git.init().setDirectory(this.folder.getRoot()).call();
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.git.close();
+    }
+
+    @Test
+    public void scanFullHistory() throws Exception
+    {
+        commit("author1", "author1@doe.com", 1000L);
+        commit("author2", "author2@doe.com", 2000L);
+        commit("author1", "author1@doe.com", 3000L);
+
+        RepositoryScanResult result = this.mocker.getComponentUnderTest().scan(REPOSITORY, getRepository(), null);
+
+        assertFalse(result.isIncremental());
+        assertEquals(2, result.getActivities().size());
+        AuthorActivity activity = result.getActivities().get(new Author("author1", "author1@doe.com"));
+        assertEquals(2, activity.getCount());
+        assertEquals(new Date(1000L), activity.getEarliest());
+        assertEquals(new Date(3000L), activity.getLatest());
+        assertTrue(activity.getRepositories().contains(REPOSITORY));
+        assertEquals(1, result.getActivities().get(new Author("author2", "author2@doe.com")).getCount());
+    }
+
+    @Test
+    public void scanFromWatermark() throws Exception
+    {
+        commit("author1", "author1@doe.com", 1000L);
+        String watermark = this.mocker.getComponentUnderTest().scan(REPOSITORY, getRepository(), null).getHead();
+        commit("author2", "author2@doe.com", 2000L);
+
+        RepositoryScanResult result = this.mocker.getComponentUnderTest().scan(REPOSITORY, getRepository(), watermark);
+
+        assertTrue(result.isIncremental());
+        assertEquals(1, result.getAuthors().size());
+        assertTrue(result.getAuthors().contains(new Author("author2", "author2@doe.com")));
+    }
+
+    @Test
+    public void scanFromUnknownWatermarkWalksFullHistory() throws Exception
+    {
+        commit("author1", "author1@doe.com", 1000L);
+
+        RepositoryScanResult result = this.mocker.getComponentUnderTest().scan(REPOSITORY, getRepository(),
+            "0123456789012345678901234567890123456789");
+
+        assertFalse(result.isIncremental());
+        assertEquals(1, result.getAuthors().size());
+    }
+
+    @Test
+    public void scanEmptyRepository() throws Exception
+    {
+        RepositoryScanResult result = this.mocker.getComponentUnderTest().scan(REPOSITORY, getRepository(), null);
+
+        assertNull(result.getHead());
+        assertTrue(result.getActivities().isEmpty());
+    }
+
+    private void commit(String name, String email, long time) throws Exception
+    {
+        FileUtils.write(new File(this.folder.getRoot(), "file.txt"), String.valueOf(time), "UTF-8");
+        this.git.add().addFilepattern("file.txt").call();
+        PersonIdent person = new PersonIdent(name, email, new Date(time), TimeZone.getTimeZone("UTC"));
+        this.git.commit().setAuthor(person).setCommitter(person).setMessage("commit").call();
+    }
+
+    private Repository getRepository()
+    {
+        return this.git.getRepository();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.githubstats.internal;
+
+import java.io.File;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import org.xwiki.contrib.githubstats.GitHubRepository;
+import org.xwiki.environment.Environment;
+import org.xwiki.git.GitManager;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link RepositoryStore}.
+ *
+ * @version $Id$
+ * @since 2.3
+ */
+public class RepositoryStoreTest
+{
+    private static final GitHubRepository REPOSITORY = new GitHubRepository("organization", "repository");
+
+    @Rule
+    public MockitoComponentMockingRule<RepositoryStore> mocker =
+        new MockitoComponentMockingRule<RepositoryStore>(RepositoryStore.class);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File permanentDirectory;
+
+    private GitHubStatsConfiguration configuration;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.permanentDirectory = this.folder.newFolder("permanent");
+        Environment environment = this.mocker.getInstance(Environment.class);
+        when(environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+        this.configuration = this.mocker.getInstance(GitHubStatsConfiguration.class);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        this.mocker.getComponentUnderTest().dispose();
+    }
+
+    @Test
+    public void getLocalRepositoryNotClonedYet() throws Exception
+    {
+        assertNull(this.mocker.getComponentUnderTest().getLocalRepository(REPOSITORY));
+        assertFalse(this.mocker.getComponentUnderTest().repack(REPOSITORY));
+    }
+
+    @Test
+    public void getLocalRepositoryClonedByGitManager() throws Exception
+    {
+        // Clone the repository where the DefaultGitManager of the Git API does
+        File directory = new File(this.permanentDirectory, "git/organization/repository");
+        GitManager gitManager = this.mocker.getInstance(GitManager.class);
+        when(gitManager.getRepository("uri", "organization" + File.separator + "repository")).thenAnswer(
+            invocation -> Git.init().setDirectory(directory).call().getRepository());
+
+        this.mocker.getComponentUnderTest().getRepository(REPOSITORY, "uri");
+
+        Repository localRepository = this.mocker.getComponentUnderTest().getLocalRepository(REPOSITORY);
+        assertNotNull(localRepository);
+        assertEquals(new File(directory, Constants.DOT_GIT), localRepository.getDirectory());
+    }
+
+    @Test
+    public void cloneFetchAndRepackBareRepository() throws Exception
+    {
+        when(this.configuration.isBareRepositoryStorage()).thenReturn(true);
+        String uri;
+        try (Git remote = Git.init().setDirectory(this.folder.newFolder("remote")).call()) {
+            remote.commit().setMessage("first").call();
+            uri = remote.getRepository().getDirectory().toURI().toString();
+
+            Repository repository = this.mocker.getComponentUnderTest().getRepository(REPOSITORY, uri);
+            assertTrue(repository.isBare());
+            assertEquals(new File(this.permanentDirectory, "git-bare/organization/repository"),
+                repository.getDirectory());
+
+            String second = remote.commit().setMessage("second").call().getName();
+            this.mocker.getComponentUnderTest().getRepository(REPOSITORY, uri);
+            assertEquals(second, repository.resolve(Constants.HEAD).getName());
+        }
+
+        assertTrue(this.mocker.getComponentUnderTest().repack(REPOSITORY));
+
+        Repository repository = this.mocker.getComponentUnderTest().getLocalRepository(REPOSITORY);
+        File[] packs =
+            new File(repository.getDirectory(), "objects/pack").listFiles((dir, name) -> name.endsWith(".pack"));
+        assertEquals(1, packs.length);
+    }
+}
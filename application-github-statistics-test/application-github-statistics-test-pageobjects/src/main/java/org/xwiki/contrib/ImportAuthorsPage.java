@@ -78,9 +78,30 @@ public class ImportAuthorsPage extends ViewPage
         currentPage.confirmDeleteTextInput.clear();
         currentPage.confirmDeleteTextInput.sendKeys("ok");
         currentPage.confirmDeleteAllAuthorsSubmit.click();
+        return new ImportAuthorsPage().waitUntilDeletionFinished();
+    }
+
+    /**
+     * The pages are deleted in the background: reload the page until its deletion status shows that the deletion is
+     * finished.
+     */
+    public ImportAuthorsPage waitUntilDeletionFinished()
+    {
+        getDriver().waitUntilCondition(driver -> {
+            if (isDeletionRunning()) {
+                driver.navigate().refresh();
+                return false;
+            }
+            return true;
+        });
         return new ImportAuthorsPage();
     }
 
+    public boolean isDeletionRunning()
+    {
+        return getContent().contains("Deleting author pages:");
+    }
+
     public LiveTableElement getAuthorsLiveTable()
     {
         LiveTableElement lt = new LiveTableElement("authors");
@@ -56,9 +56,30 @@ public class ImportRepositoriesPage extends ViewPage
         currentPage.confirmDeleteTextInput.clear();
         currentPage.confirmDeleteTextInput.sendKeys("ok");
         currentPage.confirmDeleteAllRepositoriesSubmit.click();
+        return new ImportRepositoriesPage().waitUntilDeletionFinished();
+    }
+
+    /**
+     * The pages are deleted in the background: reload the page until its deletion status shows that the deletion is
+     * finished.
+     */
+    public ImportRepositoriesPage waitUntilDeletionFinished()
+    {
+        getDriver().waitUntilCondition(driver -> {
+            if (isDeletionRunning()) {
+                driver.navigate().refresh();
+                return false;
+            }
+            return true;
+        });
         return new ImportRepositoriesPage();
     }
 
+    public boolean isDeletionRunning()
+    {
+        return getContent().contains("Deleting repository pages:");
+    }
+
     public LiveTableElement getRepositoriesLiveTable()
     {
         LiveTableElement lt = new LiveTableElement("repositories");
@@ -64,6 +64,7 @@ public class StubGitHubFactory implements GitHubFactory
         when(organization1.getRepositories()).thenReturn(repositories);
 
         PagedIterator<GHUser> author2PagedIterator = mock(PagedIterator.class);
+        when(author2PagedIterator.hasNext()).thenReturn(true);
         when(author2PagedIterator.next()).thenReturn(user2);
 
         PagedSearchIterable<GHUser> author2PagedSearchIterable = mock(PagedSearchIterable.class);
@@ -77,6 +78,7 @@ public class StubGitHubFactory implements GitHubFactory
 
         PagedSearchIterable<GHUser> emptyPagedSearchIterable = mock(PagedSearchIterable.class);
         when(emptyPagedSearchIterable.getTotalCount()).thenReturn(0);
+        when(emptyPagedSearchIterable.iterator()).thenReturn(mock(PagedIterator.class));
 
         GHUserSearchBuilder emptySearchUserBuilder = mock(GHUserSearchBuilder.class);
         when(emptySearchUserBuilder.type("user")).thenReturn(emptySearchUserBuilder);
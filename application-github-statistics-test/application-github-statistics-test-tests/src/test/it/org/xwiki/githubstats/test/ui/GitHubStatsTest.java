@@ -36,6 +36,7 @@ import org.xwiki.test.ui.po.LiveTableElement;
 import org.xwiki.test.ui.po.ViewPage;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -59,7 +60,9 @@ public class GitHubStatsTest extends AbstractTest
         importRepositoriesPage = importRepositoriesPage.importOrganization("organization1");
         LiveTableElement livetable = importRepositoriesPage.getRepositoriesLiveTable();
         assertEquals(6, livetable.getRowCount());
+        // The repositories are deleted in the background, the page object waits until the deletion is finished
         importRepositoriesPage = importRepositoriesPage.deleteAllRepositories();
+        assertFalse(importRepositoriesPage.isDeletionRunning());
         livetable = importRepositoriesPage.getRepositoriesLiveTable();
         assertEquals(0, livetable.getRowCount());
         importRepositoriesPage = importRepositoriesPage.importOrganization("organization1");
@@ -74,7 +77,9 @@ public class GitHubStatsTest extends AbstractTest
         importAuthorsPage = importAuthorsPage.importAuthorsFromGit();
         livetable = importAuthorsPage.getAuthorsLiveTable();
         assertEquals(4, livetable.getRowCount());
+        // The authors are deleted in the background and can't be imported again until the deletion is finished
         importAuthorsPage = importAuthorsPage.deleteAuthors();
+        assertFalse(importAuthorsPage.isDeletionRunning());
         livetable = importAuthorsPage.getAuthorsLiveTable();
         assertEquals(0, livetable.getRowCount());
         importAuthorsPage = importAuthorsPage.importAuthorsFromGit();